@@ -0,0 +1,28 @@
+package players.groupAK;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the GC profiler, so every score comes with its allocation rate
+ * (gc.alloc.rate.norm, bytes per operation). Takes the usual JMH command line, e.g. a benchmark
+ * regex or -p position=late-1v1.
+ */
+public class BenchmarkMain
+{
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException
+    {
+        CommandLineOptions cmd = new CommandLineOptions(args);
+        ChainedOptionsBuilder options = new OptionsBuilder()
+                .parent(cmd)
+                .addProfiler(GCProfiler.class);
+        if (cmd.getIncludes().isEmpty())
+            options.include("players\\.groupAK\\..*Benchmark");
+        new Runner(options.build()).run();
+    }
+}
@@ -0,0 +1,75 @@
+package players.groupAK;
+
+import core.GameState;
+import utils.Types;
+import utils.Vector2d;
+
+import java.util.Random;
+
+/**
+ * Corpus of game states the benchmarks search from. A position is replayed from a fixed seed with
+ * random play, our agent never bombing so it lives long enough, so every run measures the same
+ * states without any saved files:
+ * the early game at the first tick, the mid and late game once the board has opened up, and a 1v1
+ * end game once only our agent and one enemy are left.
+ */
+final class BenchmarkStates
+{
+    static final String EARLY_FFA = "early-ffa";
+    static final String MID_FFA = "mid-ffa";
+    static final String LATE_FFA = "late-ffa";
+    static final String LATE_1V1 = "late-1v1";
+
+    private static final int PLAYER = 0;
+    private static final int MAX_SEEDS = 1000;
+
+    private BenchmarkStates() {}
+
+    /**
+     * The named position as our agent (player 0) observes it.
+     */
+    static GameState load(String position)
+    {
+        switch (position) {
+            case EARLY_FFA: return replay(0, Types.NUM_PLAYERS - 1);
+            case MID_FFA:   return replay(40, Types.NUM_PLAYERS - 1);
+            case LATE_FFA:  return replay(100, 2);
+            case LATE_1V1:  return replay(0, 1);
+        }
+        throw new IllegalArgumentException("Unknown position " + position);
+    }
+
+    // First state, over increasing seeds, that reaches the tick with our agent alive and at most the
+    // given number of enemies left.
+    private static GameState replay(int tick, int enemies)
+    {
+        Types.ACTIONS[] all = Types.ACTIONS.values();
+        Types.ACTIONS[] joint = new Types.ACTIONS[Types.NUM_PLAYERS];
+
+        for (long seed = 0; seed < MAX_SEEDS; seed++) {
+            GameState gs = new GameState(seed, Types.BOARD_SIZE, Types.GAME_MODE.FFA);
+            gs.init();
+            Random rnd = new Random(seed);
+
+            while (!gs.isTerminal()) {
+                GameState observed = gs.copy(PLAYER);
+                if (!alive(observed))
+                    break;
+                if (observed.getTick() >= tick && observed.getAliveEnemyIDs().size() <= enemies)
+                    return observed;
+                for (int i = 0; i < joint.length; i++)
+                    joint[i] = all[rnd.nextInt(all.length)];
+                if (joint[PLAYER] == Types.ACTIONS.ACTION_BOMB)
+                    joint[PLAYER] = Types.ACTIONS.ACTION_STOP;
+                gs.next(joint);
+            }
+        }
+        throw new IllegalStateException("No seed reaches the position");
+    }
+
+    private static boolean alive(GameState gs)
+    {
+        Vector2d pos = gs.getPosition();
+        return gs.getBoard()[pos.y][pos.x].getKey() == gs.getPlayerId();
+    }
+}
@@ -0,0 +1,79 @@
+package players.groupAK;
+
+import core.GameState;
+import org.openjdk.jmh.annotations.*;
+import utils.Types;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Whole searches and rollouts with each rollout policy. Scores of search are in iterations per second.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchBenchmark
+{
+    private static final int ITERATIONS = 200;
+
+    @Param({BenchmarkStates.EARLY_FFA, BenchmarkStates.MID_FFA, BenchmarkStates.LATE_FFA, BenchmarkStates.LATE_1V1})
+    public String position;
+
+    @Param({"0", "1", "2"})
+    public int rolloutType;
+
+    private GameState state;
+    private SingleTreeNode tree;
+    private SearchWorker worker;
+
+    @Setup(Level.Trial)
+    public void setUp()
+    {
+        MCTSParamsTD params = new MCTSParamsTD();
+        params.stop_type = params.STOP_ITERATIONS;
+        params.num_iterations = ITERATIONS;
+        params.rolloutType = rolloutType;
+        params.reuse_tree = false;
+
+        ArrayList<Types.ACTIONS> all = Types.ACTIONS.all();
+        state = BenchmarkStates.load(position);
+        tree = new SingleTreeNode(params, new Random(0), all.size(), all.toArray(new Types.ACTIONS[0]));
+        tree.setRootGameState(state);
+        worker = tree.worker(0);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ITERATIONS)
+    public int search()
+    {
+        tree.setRootGameState(state);
+        tree.mctsSearch(Long.MAX_VALUE);
+        return tree.mostVisitedAction();
+    }
+
+    /**
+     * A copy of the position made before each invocation, so rollOut is measured without the copy.
+     */
+    @State(Scope.Thread)
+    public static class Fresh
+    {
+        GameState state;
+
+        @Setup(Level.Invocation)
+        public void copy(SearchBenchmark benchmark)
+        {
+            state = benchmark.state.copy();
+        }
+    }
+
+    @Benchmark
+    public double rollOut(Fresh fresh)
+    {
+        return worker.rollout.rollOut(fresh.state, 0);
+    }
+}
@@ -0,0 +1,55 @@
+package players.groupAK;
+
+import core.GameState;
+import org.openjdk.jmh.annotations.*;
+import players.heuristics.AdvancedHeuristic;
+import players.heuristics.CustomHeuristic;
+import players.heuristics.StateHeuristic;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Costs the search pays on every step: copying a state and evaluating one with each heuristic.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StateBenchmark
+{
+    @Param({BenchmarkStates.EARLY_FFA, BenchmarkStates.MID_FFA, BenchmarkStates.LATE_FFA, BenchmarkStates.LATE_1V1})
+    public String position;
+
+    private GameState state;
+    private StateHeuristic custom;
+    private StateHeuristic advanced;
+
+    @Setup(Level.Trial)
+    public void setUp()
+    {
+        state = BenchmarkStates.load(position);
+        custom = new CustomHeuristic(state);
+        advanced = new AdvancedHeuristic(state, new Random(0));
+    }
+
+    @Benchmark
+    public GameState copy()
+    {
+        return state.copy();
+    }
+
+    @Benchmark
+    public double customHeuristic()
+    {
+        return custom.evaluateState(state);
+    }
+
+    @Benchmark
+    public double advancedHeuristic()
+    {
+        return advanced.evaluateState(state);
+    }
+}
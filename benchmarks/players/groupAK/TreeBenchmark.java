@@ -0,0 +1,88 @@
+package players.groupAK;
+
+import core.GameState;
+import org.openjdk.jmh.annotations.*;
+import utils.Types;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The steps of one search iteration on a searched tree: advancing a state, selecting a child and
+ * backing a result up.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TreeBenchmark
+{
+    private static final int ITERATIONS = 200;
+
+    @Param({BenchmarkStates.EARLY_FFA, BenchmarkStates.MID_FFA, BenchmarkStates.LATE_FFA, BenchmarkStates.LATE_1V1})
+    public String position;
+
+    private GameState state;
+    private SingleTreeNode tree;
+    private SearchWorker worker;
+    private int child;
+
+    @Setup(Level.Trial)
+    public void setUp()
+    {
+        MCTSParamsTD params = new MCTSParamsTD();
+        params.stop_type = params.STOP_ITERATIONS;
+        params.num_iterations = ITERATIONS;
+        params.reuse_tree = false;
+
+        ArrayList<Types.ACTIONS> all = Types.ACTIONS.all();
+        state = BenchmarkStates.load(position);
+        tree = new SingleTreeNode(params, new Random(0), all.size(), all.toArray(new Types.ACTIONS[0]));
+
+        // A searched tree, so the root is fully expanded for uct and has a child to back up through
+        tree.setRootGameState(state);
+        tree.mctsSearch(Long.MAX_VALUE);
+        worker = tree.worker(0);
+        child = tree.child(0, tree.uct(0, worker));
+    }
+
+    /**
+     * A copy of the position made before each invocation, so roll is measured without the copy.
+     */
+    @State(Scope.Thread)
+    public static class Fresh
+    {
+        GameState state;
+
+        @Setup(Level.Invocation)
+        public void copy(TreeBenchmark benchmark)
+        {
+            state = benchmark.state.copy();
+        }
+    }
+
+    @Benchmark
+    public GameState roll(Fresh fresh)
+    {
+        worker.rollout.roll(fresh.state, Types.ACTIONS.ACTION_STOP);
+        return fresh.state;
+    }
+
+    @Benchmark
+    public int uct()
+    {
+        return tree.uct(0, worker);
+    }
+
+    @Benchmark
+    public void backUp()
+    {
+        worker.path[0] = 0;
+        worker.path[1] = child;
+        worker.pathLength = 2;
+        tree.backUp(0.5, worker);
+    }
+}
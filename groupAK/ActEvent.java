@@ -0,0 +1,44 @@
+package players.groupAK;
+
+import jdk.jfr.*;
+
+/**
+ * JFR event for one act() call of MCTSPlayerTD. Disabled by default; enable players.groupAK.Act in
+ * the recording settings.
+ */
+@Name("players.groupAK.Act")
+@Label("MCTS Act")
+@Category({"Pommerman", "MCTS"})
+@Description("One turn of MCTSPlayerTD: its time budget, the search it did and the action it chose")
+@Enabled(false)
+@StackTrace(false)
+class ActEvent extends Event
+{
+    @Label("Tick")
+    int tick;
+
+    @Label("Action")
+    int action;
+
+    @Label("Stop Type")
+    int stopType;
+
+    @Label("Budget")
+    @Timespan(Timespan.MILLISECONDS)
+    long budget;
+
+    @Label("Critical")
+    boolean critical;
+
+    @Label("Searched")
+    boolean searched;
+
+    @Label("Iterations")
+    int iterations;
+
+    @Label("Forward Model Calls")
+    long fmCalls;
+
+    @Label("Nodes")
+    int nodes;
+}
@@ -0,0 +1,215 @@
+package players.groupAK;
+
+import utils.Types;
+import utils.Vector2d;
+
+import java.util.Arrays;
+
+/**
+ * Bitboard view of a board: one bitset per class of tile, bit y * size + x set where the tile is of
+ * that class. Built once per simulated state and reused, so move masks and tile counts are a few
+ * bitwise operations instead of indexing and comparing the tile array. Where only the moves of one
+ * agent matter, buildAround reads just the tiles its actions lead to.
+ */
+class BoardBits
+{
+    static final int RIGID = 0;
+    static final int WOOD = 1;
+    static final int FLAMES = 2;
+    static final int BOMBS = 3;
+    static final int POWER_UPS = 4;
+    static final int AGENTS = 5;
+    private static final int NUM_LAYERS = 6;
+
+    // Actions that leave the agent on its tile (stop, bomb)
+    private static final int STAYING;
+
+
+    // Layer of each tile type by ordinal, -1 for tiles not tracked (passage, fog).
+    private static final int[] LAYER_OF = new int[Types.TILETYPE.values().length];
+
+    static {
+        for (Types.TILETYPE t : Types.TILETYPE.values()) {
+            int layer;
+            switch (t) {
+                case RIGID: layer = RIGID; break;
+                case WOOD: layer = WOOD; break;
+                case FLAMES: layer = FLAMES; break;
+                case BOMB: layer = BOMBS; break;
+                case EXTRABOMB: case INCRRANGE: case KICK: layer = POWER_UPS; break;
+                case AGENTDUMMY: case AGENT0: case AGENT1: case AGENT2: case AGENT3: layer = AGENTS; break;
+                default: layer = -1;
+            }
+            LAYER_OF[t.ordinal()] = layer;
+        }
+
+        int staying = 0;
+        for (int a = 0; a < RolloutEngine.ACTIONS.length; a++)
+            if (RolloutEngine.DX[a] == 0 && RolloutEngine.DY[a] == 0)
+                staying |= 1 << a;
+        STAYING = staying;
+    }
+
+    private int size;
+    private int words;
+    private long[] bits = new long[0];    // NUM_LAYERS blocks of words longs
+
+    // Per board size: the tile each action leads to from each tile (-1 off the board), and per tile
+    // the mask of the actions that stay on the board
+    private int[] dest = new int[0];
+    private int[] onBoard = new int[0];
+
+    // Per layer, the mask of the actions from nearTile whose destination is of that class
+    private final int[] near = new int[NUM_LAYERS];
+    private int nearTile = -1;      // -1 until read for the board built last
+    private boolean full;           // false after buildAround, has and count are stale then
+
+    void build(Types.TILETYPE[][] board)
+    {
+        layout(board.length);
+        nearTile = -1;
+        full = true;
+        if (bits.length < NUM_LAYERS * words)
+            bits = new long[NUM_LAYERS * words];
+        else
+            Arrays.fill(bits, 0, NUM_LAYERS * words, 0L);
+
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                int layer = LAYER_OF[board[y][x].ordinal()];
+                if (layer >= 0) {
+                    int i = y * size + x;
+                    bits[layer * words + (i >>> 6)] |= 1L << i;
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads only the tiles the actions of an agent at pos lead to, all safeMoves and legalMoves need
+     * for it. has, count, copyLayer and sameLayer answer for the last full build until build is
+     * called again.
+     */
+    void buildAround(Types.TILETYPE[][] board, Vector2d pos)
+    {
+        layout(board.length);
+        full = false;
+        int tile = pos.y * size + pos.x;
+        Arrays.fill(near, 0);
+        for (int a = 0; a < RolloutEngine.ACTIONS.length; a++) {
+            int d = dest[tile * RolloutEngine.ACTIONS.length + a];
+            if (d < 0)
+                continue;
+            int layer = LAYER_OF[board[d / size][d % size].ordinal()];
+            if (layer >= 0)
+                near[layer] |= 1 << a;
+        }
+        nearTile = tile;
+    }
+
+    // Tables for the board size, computed when it changes.
+    private void layout(int boardSize)
+    {
+        if (boardSize == size && dest.length > 0)
+            return;
+        size = boardSize;
+        words = (size * size + 63) >>> 6;
+
+        int n = RolloutEngine.ACTIONS.length;
+        dest = new int[size * size * n];
+        onBoard = new int[size * size];
+        for (int i = 0; i < size * size; i++) {
+            for (int a = 0; a < n; a++) {
+                int x = i % size + RolloutEngine.DX[a];
+                int y = i / size + RolloutEngine.DY[a];
+                boolean inside = x >= 0 && x < size && y >= 0 && y < size;
+                dest[i * n + a] = inside ? y * size + x : -1;
+                if (inside)
+                    onBoard[i] |= 1 << a;
+            }
+        }
+    }
+
+    // Fills near from the full bitboard for the tile, if not read for it yet.
+    private int around(Vector2d pos)
+    {
+        int tile = pos.y * size + pos.x;
+        if (tile == nearTile || !full)
+            return tile;
+
+        Arrays.fill(near, 0);
+        for (int a = 0; a < RolloutEngine.ACTIONS.length; a++) {
+            int d = dest[tile * RolloutEngine.ACTIONS.length + a];
+            if (d < 0)
+                continue;
+            for (int layer = 0; layer < NUM_LAYERS; layer++)
+                if ((bits[layer * words + (d >>> 6)] & (1L << d)) != 0)
+                    near[layer] |= 1 << a;
+        }
+        nearTile = tile;
+        return tile;
+    }
+
+    int size()
+    {
+        return size;
+    }
+
+    /**
+     * Mask over RolloutEngine.ACTIONS of the actions from pos whose destination is of the class.
+     */
+    int nearby(int layer, Vector2d pos)
+    {
+        int tile = around(pos);
+        return near[layer] & onBoard[tile];
+    }
+
+    boolean has(int layer, int x, int y)
+    {
+        int i = y * size + x;
+        return (bits[layer * words + (i >>> 6)] & (1L << i)) != 0;
+    }
+
+    void copyLayer(int layer, long[] dst)
+    {
+        System.arraycopy(bits, layer * words, dst, 0, words);
+    }
+
+    boolean sameLayer(int layer, long[] other)
+    {
+        for (int w = 0; w < words; w++)
+            if (bits[layer * words + w] != other[w])
+                return false;
+        return true;
+    }
+
+    // Number of tiles of the class on the board.
+    int count(int layer)
+    {
+        int n = 0;
+        for (int w = 0; w < words; w++)
+            n += Long.bitCount(bits[layer * words + w]);
+        return n;
+    }
+
+    /**
+     * Mask over RolloutEngine.ACTIONS of the actions that keep an agent at pos on the board and out
+     * of flames.
+     */
+    int safeMoves(Vector2d pos)
+    {
+        int tile = around(pos);
+        return onBoard[tile] & ~near[FLAMES];
+    }
+
+    /**
+     * Mask over RolloutEngine.ACTIONS of the actions that do something: moves onto a tile that is on
+     * the board and not blocked by a wall, wood, a bomb or another agent, plus stopping and bombing.
+     */
+    int legalMoves(Vector2d pos)
+    {
+        int tile = around(pos);
+        int blocked = near[RIGID] | near[WOOD] | near[BOMBS] | near[AGENTS];
+        return (onBoard[tile] & ~blocked & ~STAYING) | STAYING;
+    }
+}
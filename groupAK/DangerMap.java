@@ -0,0 +1,226 @@
+package players.groupAK;
+
+import core.GameState;
+import utils.Vector2d;
+
+import java.util.Arrays;
+
+/**
+ * Ticks until each tile of a simulated state is covered by a bomb blast, including blasts set off
+ * early by chain reactions. Follows one state as it is advanced: while no bomb appears, disappears
+ * or burns through wood the map is only counted down, a new bomb on its own adds its blast, and
+ * anything else rebuilds it from the bomb grid.
+ */
+class DangerMap
+{
+    static final int SAFE = Integer.MAX_VALUE;
+
+    private int size;
+    private boolean valid;
+    private int[] ticks = new int[0];       // per tile, SAFE when no bomb reaches it
+    private long[] bombs = new long[0];     // tiles holding a bomb at the last update
+    private long[] wood = new long[0];      // wood at the last update, blasts stop at it
+    private long[] current = new long[0];
+
+    // Scratch lists of bombs for rebuilding
+    private int[] bombTile = new int[0];
+    private int[] bombTime = new int[0];
+    private int[] bombRange = new int[0];
+
+    /**
+     * Forgets the state followed so far, the next update rebuilds the map.
+     */
+    void invalidate()
+    {
+        valid = false;
+    }
+
+    /**
+     * Brings the map up to date with the state, whose bitboard has already been built.
+     */
+    void update(GameState gs, BoardBits bits)
+    {
+        int[][] life = gs.getBombLife();
+        if (!valid || size != bits.size()) {
+            rebuild(gs, bits, life);
+            return;
+        }
+
+        Arrays.fill(current, 0L);
+        for (int y = 0; y < size; y++)
+            for (int x = 0; x < size; x++)
+                if (life[y][x] > 0)
+                    set(current, y * size + x);
+
+        boolean removed = false;
+        boolean added = false;
+        for (int w = 0; w < current.length; w++) {
+            removed |= (bombs[w] & ~current[w]) != 0;
+            added |= (current[w] & ~bombs[w]) != 0;
+        }
+        if (removed || !bits.sameLayer(BoardBits.WOOD, wood)) {
+            rebuild(gs, bits, life);
+            return;
+        }
+
+        // Every bomb is a tick closer to going off
+        for (int i = 0; i < ticks.length; i++)
+            if (ticks[i] != SAFE && ticks[i] > 1)
+                ticks[i]--;
+
+        if (added) {
+            int[][] range = gs.getBombBlastStrength();
+            for (int i = 0; i < size * size; i++) {
+                if (isSet(current, i) && !isSet(bombs, i)) {
+                    int x = i % size, y = i / size;
+                    if (ticks[i] != SAFE || blastReachesBomb(bits, x, y, range[y][x], current)) {
+                        rebuild(gs, bits, life);    // chain reaction, times of other bombs change
+                        return;
+                    }
+                    blast(bits, x, y, range[y][x], life[y][x]);
+                }
+            }
+        }
+
+        long[] swap = bombs;
+        bombs = current;
+        current = swap;
+    }
+
+    int ticks(int x, int y)
+    {
+        return ticks[y * size + x];
+    }
+
+    /**
+     * The actions of the mask whose destination is not hit by a blast on the next tick. An action
+     * outside the legal mask is a blocked move that leaves the agent where it is, so its destination
+     * is the agent's own tile.
+     */
+    int survivableMoves(Vector2d pos, int mask, int legal)
+    {
+        int survivable = 0;
+        for (int a = 0; a < RolloutEngine.ACTIONS.length; a++) {
+            if ((mask & (1 << a)) == 0)
+                continue;
+            boolean moves = (legal & (1 << a)) != 0;
+            int x = moves ? pos.x + RolloutEngine.DX[a] : pos.x;
+            int y = moves ? pos.y + RolloutEngine.DY[a] : pos.y;
+            if (ticks[y * size + x] > 1)
+                survivable |= 1 << a;
+        }
+        return survivable;
+    }
+
+    private void rebuild(GameState gs, BoardBits bits, int[][] life)
+    {
+        size = bits.size();
+        int tiles = size * size;
+        int words = (tiles + 63) >>> 6;
+        if (ticks.length != tiles) {
+            ticks = new int[tiles];
+            bombs = new long[words];
+            wood = new long[words];
+            current = new long[words];
+            bombTile = new int[tiles];
+            bombTime = new int[tiles];
+            bombRange = new int[tiles];
+        }
+        Arrays.fill(ticks, SAFE);
+        Arrays.fill(bombs, 0L);
+        bits.copyLayer(BoardBits.WOOD, wood);
+
+        int[][] range = gs.getBombBlastStrength();
+        int n = 0;
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                if (life[y][x] > 0) {
+                    bombTile[n] = y * size + x;
+                    bombTime[n] = life[y][x];
+                    bombRange[n] = range[y][x];
+                    set(bombs, y * size + x);
+                    n++;
+                }
+            }
+        }
+
+        // A bomb caught in another's blast goes off with it: settle the earliest time of each bomb
+        boolean changed = n > 1;
+        while (changed) {
+            changed = false;
+            for (int b = 0; b < n; b++) {
+                for (int c = 0; c < n; c++) {
+                    if (c != b && bombTime[c] > bombTime[b] && inBlast(bits, bombTile[b], bombRange[b], bombTile[c])) {
+                        bombTime[c] = bombTime[b];
+                        changed = true;
+                    }
+                }
+            }
+        }
+
+        for (int b = 0; b < n; b++)
+            blast(bits, bombTile[b] % size, bombTile[b] / size, bombRange[b], bombTime[b]);
+        valid = true;
+    }
+
+    // Marks the tiles covered by a bomb at (x, y) going off in the given number of ticks.
+    private void blast(BoardBits bits, int x, int y, int range, int time)
+    {
+        mark(y * size + x, time);
+        for (int d = 0; d < 4; d++) {
+            int dx = (d == 0) ? 1 : (d == 1) ? -1 : 0;
+            int dy = (d == 2) ? 1 : (d == 3) ? -1 : 0;
+            for (int r = 1; r < range; r++) {
+                int bx = x + dx * r, by = y + dy * r;
+                if (bx < 0 || bx >= size || by < 0 || by >= size || bits.has(BoardBits.RIGID, bx, by))
+                    break;
+                mark(by * size + bx, time);
+                if (bits.has(BoardBits.WOOD, bx, by))
+                    break;
+            }
+        }
+    }
+
+    private boolean inBlast(BoardBits bits, int from, int range, int tile)
+    {
+        int x = from % size, y = from / size;
+        int tx = tile % size, ty = tile / size;
+        if (tx != x && ty != y)
+            return false;
+        int dist = Math.abs(tx - x) + Math.abs(ty - y);
+        if (dist >= range)
+            return false;
+
+        int dx = Integer.signum(tx - x), dy = Integer.signum(ty - y);
+        for (int r = 1; r < dist; r++) {
+            int bx = x + dx * r, by = y + dy * r;
+            if (bits.has(BoardBits.RIGID, bx, by) || bits.has(BoardBits.WOOD, bx, by))
+                return false;
+        }
+        return !bits.has(BoardBits.RIGID, tx, ty);
+    }
+
+    private boolean blastReachesBomb(BoardBits bits, int x, int y, int range, long[] bombSet)
+    {
+        for (int i = 0; i < size * size; i++)
+            if (isSet(bombSet, i) && i != y * size + x && inBlast(bits, y * size + x, range, i))
+                return true;
+        return false;
+    }
+
+    private void mark(int tile, int time)
+    {
+        if (time < ticks[tile])
+            ticks[tile] = time;
+    }
+
+    private static void set(long[] set, int i)
+    {
+        set[i >>> 6] |= 1L << i;
+    }
+
+    private static boolean isSet(long[] set, int i)
+    {
+        return (set[i >>> 6] & (1L << i)) != 0;
+    }
+}
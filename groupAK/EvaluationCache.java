@@ -0,0 +1,86 @@
+package players.groupAK;
+
+import core.GameState;
+import players.heuristics.StateHeuristic;
+
+/**
+ * Bounded open-addressed cache of heuristic values keyed by state hash. Heuristics are built from the
+ * root state, so entries are only valid for one turn: each entry carries the epoch it was written in
+ * and moving to the next epoch invalidates all of them without clearing the arrays. States that only
+ * differ in what StateHasher leaves out share a value, so a hit can be the value of such a state.
+ */
+class EvaluationCache
+{
+    private static final int MAX_PROBES = 4;
+
+    private final long[] keys;
+    private final double[] values;
+    private final int[] epochs;     // 0 = never written
+    private final int mask;
+    private int epoch = 1;
+
+    private long hits;
+    private long misses;
+
+    EvaluationCache(int minCapacity)
+    {
+        int capacity = Integer.highestOneBit(Math.max(2, minCapacity) - 1) << 1;
+        keys = new long[capacity];
+        values = new double[capacity];
+        epochs = new int[capacity];
+        mask = capacity - 1;
+    }
+
+    // Invalidates all entries and restarts the hit and miss counts.
+    void nextEpoch()
+    {
+        epoch++;
+        hits = 0;
+        misses = 0;
+    }
+
+    /**
+     * Value of the state under the heuristic, computed only if it is not cached for this epoch.
+     */
+    double evaluate(StateHeuristic heuristic, GameState gs)
+    {
+        long hash = StateHasher.hash(gs);
+        int i = index(hash);
+        int free = -1;
+        for (int p = 0; p < MAX_PROBES; p++) {
+            if (epochs[i] == epoch) {
+                if (keys[i] == hash) {
+                    hits++;
+                    return values[i];
+                }
+            } else if (free == -1) {
+                free = i;
+            }
+            i = (i + 1) & mask;
+        }
+
+        misses++;
+        double value = heuristic.evaluateState(gs);
+
+        int slot = (free != -1) ? free : index(hash);   // all probed slots taken this turn: replace the first
+        keys[slot] = hash;
+        values[slot] = value;
+        epochs[slot] = epoch;
+        return value;
+    }
+
+    long hits()
+    {
+        return hits;
+    }
+
+    long misses()
+    {
+        return misses;
+    }
+
+    private int index(long hash)
+    {
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+}
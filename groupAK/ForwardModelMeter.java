@@ -0,0 +1,69 @@
+package players.groupAK;
+
+import core.GameState;
+import utils.Types;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Every forward model step and state copy the search of a tree makes goes through its meter, which
+ * counts them in the stats of the worker that made them and, with STOP_FMCALLS, against the step
+ * budget shared by all workers of the tree.
+ */
+class ForwardModelMeter
+{
+    private static final VarHandle STEPS;
+
+    static {
+        try {
+            STEPS = MethodHandles.lookup().findVarHandle(ForwardModelMeter.class, "steps", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private long budget;    // forward model steps allowed this turn, 0 for no limit
+    private long steps;
+
+    /**
+     * Starts a new turn allowed the given number of forward model steps, 0 for no limit.
+     */
+    void reset(long budget)
+    {
+        this.budget = budget;
+        STEPS.setVolatile(this, 0L);
+    }
+
+    void next(GameState gs, Types.ACTIONS[] jointActions, SearchStats stats)
+    {
+        gs.next(jointActions);
+        stats.fmCalls++;
+        if (budget > 0)
+            STEPS.getAndAdd(this, 1L);
+    }
+
+    /**
+     * Counts one step against the budget without taking it, for an iteration that took none, so a
+     * search whose iterations stop reaching the forward model still spends its budget.
+     */
+    void charge()
+    {
+        if (budget > 0)
+            STEPS.getAndAdd(this, 1L);
+    }
+
+    GameState copy(GameState gs, SearchStats stats)
+    {
+        stats.copies++;
+        return gs.copy();
+    }
+
+    /**
+     * Whether the budget has been spent. Never true without a budget.
+     */
+    boolean exhausted()
+    {
+        return budget > 0 && (long) STEPS.getVolatile(this) >= budget;
+    }
+}
@@ -18,6 +18,15 @@ public class MCTSParamsTD implements ParameterSet {
     public final int STOP_ITERATIONS = 1;
     public final int STOP_FMCALLS = 2;
 
+    public final int PARALLEL_ROOT = 0;
+    public final int PARALLEL_TREE = 1;
+
+    public final int MERGE_SUM_VISITS = 0;
+    public final int MERGE_MAJORITY_VOTE = 1;
+
+    public final int ROOT_UCT = 0;
+    public final int ROOT_SEQUENTIAL_HALVING = 1;
+
     public final int CUSTOM_HEURISTIC = 0;
     public final int ADVANCED_HEURISTIC = 1;
 
@@ -34,6 +43,36 @@ public class MCTSParamsTD implements ParameterSet {
     public int num_fmcalls = 2000;
     public int num_time = 40;//40
     public double gamma = 0.98; // change this to test decay factor
+    public int time_margin = 5; // milliseconds of num_time left unused as a safety margin (STOP_TIME)
+    public double time_quantile = 0.95; // quantile of the iteration cost the time budget plans with (STOP_TIME)
+    public int time_check_interval = 8; // most iterations run between two reads of the clock (STOP_TIME)
+    public boolean time_bank = false; // quiet turns bank part of num_time for critical turns to spend (STOP_TIME)
+    public double quiet_time_share = 0.5; // share of num_time a quiet turn searches for with the time bank
+    public int time_bank_limit = 400; // most milliseconds the time bank holds
+    public int turn_time_ceiling = 80; // hard limit in milliseconds on one turn's search, keep below the framework's
+    public int threat_distance = 4; // an enemy this many tiles away or closer makes the turn critical
+    public boolean reflex = false; // turns with no threat in sight play a path-finding move instead of searching
+    public double critical_spread = 0.02; // root action values closer than this (std. dev.) make the turn critical
+    public int search_threads = 1; // threads searching each turn, 1 = single threaded
+    public int parallel_type = PARALLEL_ROOT; // one tree per thread (root) or one tree shared by all threads (tree)
+    public int merge_type = MERGE_SUM_VISITS; // how the root statistics of parallel trees are combined
+    public double virtual_loss = 1; // visits at the worst value added to a node while a thread is below it (tree parallelisation)
+    public int arena_capacity = 1 << 14; // nodes preallocated per tree, the tree stops growing when it is full
+    public boolean use_transpositions = false; // states reached through different action orders share one node
+    public int eval_cache_size = 0; // heuristic values cached per search thread and turn, 0 = no cache
+    public boolean avoid_blasts = false; // rollout policies avoid tiles a bomb blast covers on the next tick
+    public int ponder_time = 0; // ms of CPU time the search may go on using in the background between turns, 0 = no pondering
+    public int root_policy = ROOT_UCT; // how root actions are chosen, sequential halving only with STOP_ITERATIONS
+    public boolean prune_actions = false; // search only safe actions that do something, a blocked move is just STOP
+    public double rewiden_value = -0.5; // with prune_actions, search all actions of a node once all safe ones average below this
+    public int state_cache_size = 0; // game states kept for shallow nodes so selection resumes from them, 0 = none
+    public int state_cache_depth = 2; // deepest tree level whose states the state cache keeps
+    public boolean batch_expansion = false; // a node's first expansion adds all its children at once, from one copy of its state each
+    public int expansion_prior = 1; // visits at its heuristic value each child of a batched expansion starts with
+    public int determinizations = 0; // iterations cycle through this many fixed plans of opponent actions (not hidden-information samples), 0 = random opponents
+    public boolean reuse_tree = true; // keep the subtree of the action played as the root of the next search
+    public boolean search_stats = false; // fill the per turn SearchStats of the player, including phase times
+    public int jfr_sample_interval = 64; // every how many iterations of a worker report their phases to JFR, 0 = never
     public double rolloutType = 2; // choose 0 for default action selection 1 for OSLA action selection and 2 for Modified Action selection used in testing
 
 
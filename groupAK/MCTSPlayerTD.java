@@ -3,11 +3,13 @@ package players.groupAK;
 import core.GameState;
 import players.Player;
 import players.optimisers.ParameterizedPlayer;
-import utils.ElapsedCpuTimer;
 import utils.Types;
 
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Random;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class MCTSPlayerTD extends ParameterizedPlayer {
 
@@ -27,6 +29,43 @@ public class MCTSPlayerTD extends ParameterizedPlayer {
      */
     public MCTSParamsTD params;
 
+    /**
+     * Search trees (one per parallel tree) and the action played from them, kept so their
+     * nodes can be reused by the next search.
+     */
+    private SingleTreeNode[] m_roots;
+    private int lastAction;
+
+    /**
+     * Worker threads for parallel search and pondering, created on first use.
+     */
+    private ExecutorService m_workers;
+
+    /**
+     * Background search of the first tree between turns (ponder_time), and its stop flag.
+     */
+    private Future<?> m_ponder;
+    private final AtomicBoolean m_ponderStop = new AtomicBoolean();
+
+    /**
+     * Turns on which act() returned after num_time had run out.
+     */
+    private int deadlineMisses;
+
+    /**
+     * Check deciding which turns are critical, the time carried over from quiet turns to spend on
+     * them (time_bank) and the move played on quiet turns without searching (reflex).
+     */
+    private ThreatCheck m_threats;
+    private TimeBank m_bank;
+    private ReflexPolicy m_reflex;
+
+    /**
+     * Statistics of the last turn (search_stats) and who is told about them.
+     */
+    private final SearchStats m_stats = new SearchStats();
+    private SearchStatsListener m_statsListener;
+
 
     public MCTSPlayerTD(long seed, int id) {
         this(seed, id, new MCTSParamsTD());
@@ -47,7 +86,11 @@ public class MCTSPlayerTD extends ParameterizedPlayer {
     @Override
     public void reset(long seed, int playerID) {
         super.reset(seed, playerID);
+        stopPondering();
         m_rnd = new Random(seed);
+        m_roots = null;
+        if (m_bank != null)
+            m_bank.reset();
 
         this.params = (MCTSParamsTD) getParameters();
         if (this.params == null) {
@@ -64,22 +107,80 @@ public class MCTSPlayerTD extends ParameterizedPlayer {
             int[] msg = gs.getMessage();
         }
 
-        ElapsedCpuTimer ect = new ElapsedCpuTimer();
-        ect.setMaxTimeMillis(params.num_time);
+        stopPondering();
+
+        ActEvent event = new ActEvent();
+        event.begin();
+        long start = System.nanoTime();
+        long deadline = start + params.num_time * 1000000L;
+
+        // Turns without a threat in sight are answered by the reflex policy, or with the time bank
+        // search for less and bank the rest
+        boolean banking = params.time_bank && params.stop_type == params.STOP_TIME;
+        boolean critical = false;
+        if (banking || params.reflex) {
+            if (m_threats == null) {
+                m_threats = new ThreatCheck(params);
+                m_bank = new TimeBank(params);
+            }
+            critical = m_threats.isThreatened(gs);
+        }
+        if (params.reflex && !critical) {
+            if (m_reflex == null)
+                m_reflex = new ReflexPolicy();
+            lastAction = m_reflex.action(gs, m_threats);
+            if (banking)
+                m_bank.settle(System.nanoTime() - start);
+            report(event, gs.getTick(), lastAction, start, deadline, critical, false);
+            return actions[lastAction];
+        }
+        if (banking)
+            deadline = start + (critical ? m_bank.criticalTime() : m_bank.quietTime());
 
         // Number of actions available
         int num_actions = actions.length;
 
-        // Root of the tree
-       SingleTreeNode m_root = new SingleTreeNode(params, m_rnd, num_actions, actions);
-      m_root.setRootGameState(gs);
+        // One tree per search thread, each with its own random generator and copy of the game state,
+        // or a single tree shared by all threads
+        int num_threads = Math.max(1, params.search_threads);
+        int num_trees = (params.parallel_type == params.PARALLEL_TREE) ? 1 : num_threads;
+        if (m_roots == null || m_roots.length != num_trees)
+            m_roots = new SingleTreeNode[num_trees];
 
+        for (int i = 0; i < num_trees; i++) {
+            // Pondering reads the root state after act() returns, so it gets a copy of its own
+            GameState treeState = (i == 0 && !pondering()) ? gs : gs.copy();
+            if (m_roots[i] == null) {
+                Random rnd = (i == 0) ? m_rnd : new Random(m_rnd.nextLong());
+                m_roots[i] = new SingleTreeNode(params, rnd, num_actions, actions);
+            }
+
+            // Root of the tree: the subtree of our last action if the game followed on from it, otherwise a new one
+            if (!params.reuse_tree || !m_roots[i].promoteChild(lastAction, treeState))
+                m_roots[i].setRootGameState(treeState);
+        }
 
         //Determine the action using MCTS...
-        m_root.mctsSearch(ect);
+        search(deadline, num_threads);
+
+        // A quiet turn whose search could not tell the actions apart is critical after all: keep
+        // searching the same trees on banked time
+        if (banking && !critical && m_roots[0].rootValueSpread() < params.critical_spread) {
+            deadline = start + m_bank.criticalTime();
+            search(deadline, num_threads);
+        }
+
+        int action = (m_roots.length == 1) ? m_roots[0].mostVisitedAction() : SingleTreeNode.mergedAction(m_roots);
+        lastAction = action;
 
-        //Determine the best action to take and return it.
-        int action = m_root.mostVisitedAction();
+        long end = System.nanoTime();
+        if (end > deadline)
+            deadlineMisses++;
+        if (banking)
+            m_bank.settle(end - start);
+        report(event, gs.getTick(), action, start, deadline, critical, true);
+        if (pondering())
+            startPondering(action);
 
         // TODO update message memory
 
@@ -87,6 +188,142 @@ public class MCTSPlayerTD extends ParameterizedPlayer {
         return actions[action];
     }
 
+    private void search(long deadline, int num_threads) {
+        if (num_threads == 1)
+            m_roots[0].mctsSearch(deadline);
+        else
+            searchInParallel(deadline, num_threads);
+    }
+
+    /**
+     * Searches the trees in m_roots on the given number of threads, all until the turn deadline,
+     * and returns once all of them have finished. With one tree per thread every tree
+     * is searched by its own worker; a single tree is shared by all threads.
+     */
+    private void searchInParallel(long deadline, int num_threads) {
+        ExecutorService workers = workers();
+
+        List<Callable<Void>> searches = new ArrayList<>();
+        for (int i = 0; i < num_threads; i++) {
+            SingleTreeNode root = m_roots[i % m_roots.length];
+            SearchWorker worker = root.worker(i / m_roots.length);
+            searches.add(() -> {
+                root.mctsSearch(deadline, worker);
+                return null;
+            });
+        }
+
+        try {
+            for (Future<Void> search : workers.invokeAll(searches))
+                search.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted during parallel search", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Parallel search failed", e.getCause());
+        }
+    }
+
+    /**
+     * Number of turns so far on which the search overran num_time.
+     */
+    public int getDeadlineMisses() {
+        return deadlineMisses;
+    }
+
+    // Sums what this turn's search did into m_stats and hands them to the listener (search_stats)
+    // and to JFR (ActEvent, when it is recording).
+    private void report(ActEvent event, int tick, int action, long start, long deadline, boolean critical, boolean searched) {
+        boolean record = event.shouldCommit();
+        if (!params.search_stats && !record)
+            return;
+
+        m_stats.clear();
+        if (searched) {
+            for (SingleTreeNode root : m_roots)
+                root.addStats(m_stats);
+        }
+        m_stats.tick = tick;
+        m_stats.action = action;
+        m_stats.turnTime = System.nanoTime() - start;
+        if (params.search_stats && m_statsListener != null)
+            m_statsListener.onTurn(m_stats);
+
+        if (record) {
+            event.tick = tick;
+            event.action = action;
+            event.stopType = params.stop_type;
+            event.budget = (deadline - start) / 1000000L;
+            event.critical = critical;
+            event.searched = searched;
+            event.iterations = m_stats.iterations;
+            event.fmCalls = m_stats.fmCalls;
+            event.nodes = m_stats.nodes;
+            event.commit();
+        }
+    }
+
+    /**
+     * Listener told about the statistics of every turn when params.search_stats is on, or null.
+     */
+    public void setStatsListener(SearchStatsListener listener) {
+        m_statsListener = listener;
+    }
+
+    /**
+     * Statistics of the last turn, filled when params.search_stats is on. Reused every turn.
+     */
+    public SearchStats getLastStats() {
+        return m_stats;
+    }
+
+    private ExecutorService workers() {
+        if (m_workers == null) {
+            m_workers = Executors.newCachedThreadPool(r -> {
+                Thread t = new Thread(r, "MCTSPlayerTD-search");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+        return m_workers;
+    }
+
+    // Pondering needs the searched subtree to be kept for the next turn.
+    private boolean pondering() {
+        return params.ponder_time > 0 && params.reuse_tree;
+    }
+
+    /**
+     * Keeps searching the first tree below the action just played, on a background thread, until
+     * the next act() stops it or it has used ponder_time milliseconds of CPU time.
+     */
+    private void startPondering(int action) {
+        SingleTreeNode root = m_roots[0];
+        long quota = params.ponder_time * 1000000L;
+        m_ponderStop.set(false);
+        m_ponder = workers().submit(() -> root.ponder(action, quota, m_ponderStop));
+    }
+
+    /**
+     * Stops the background search, waiting at most for the iteration it is in to finish.
+     */
+    private void stopPondering() {
+        if (m_ponder == null)
+            return;
+
+        m_ponderStop.set(true);
+        try {
+            m_ponder.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while stopping the background search", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Background search failed", e.getCause());
+        } finally {
+            m_ponder = null;
+        }
+    }
+
     @Override
     public int[] getMessage() {
         // default message
@@ -0,0 +1,199 @@
+package players.groupAK;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+
+/**
+ * Preallocated storage for the nodes of a search tree. A node is an index into primitive arrays,
+ * so growing the tree allocates nothing and clearing it for the next turn is a reset.
+ * Statistics and child links are updated atomically so several workers can share the tree.
+ */
+class NodeArena
+{
+    static final int NONE = -1;
+
+    private static final VarHandle INTS = MethodHandles.arrayElementVarHandle(int[].class);
+    private static final VarHandle DOUBLES = MethodHandles.arrayElementVarHandle(double[].class);
+    private static final VarHandle SIZE;
+
+    static {
+        try {
+            SIZE = MethodHandles.lookup().findVarHandle(NodeArena.class, "size", int.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    final int capacity;
+    final int num_actions;
+
+    final int[] parent;         // parent the node was first created under
+    final int[] childIdx;       // action leading to the node from its parent
+    final int[] depth;
+    final int[] children;       // num_actions slots per node, NONE while not expanded
+    final int[] nVisits;
+    final int[] nVirtual;       // workers currently searching below the node
+    final double[] totValue;
+    final double[] bounds;      // lowest and highest result backed up through the node
+    final double[] heuristic;   // heuristic value of the node's state, the h(s,a) of progressive bias
+    final int[] actions;        // mask of the actions searched from the node, 0 until first visited
+    final long[] hash;          // hash of the state the node was created for, 0 if not hashed
+
+    private final int[] remap;  // id in the destination arena of each node already copied
+
+    private int size;
+
+    NodeArena(int capacity, int num_actions)
+    {
+        this.capacity = capacity;
+        this.num_actions = num_actions;
+        parent = new int[capacity];
+        childIdx = new int[capacity];
+        depth = new int[capacity];
+        children = new int[capacity * num_actions];
+        nVisits = new int[capacity];
+        nVirtual = new int[capacity];
+        totValue = new double[capacity];
+        bounds = new double[capacity * 2];
+        heuristic = new double[capacity];
+        actions = new int[capacity];
+        hash = new long[capacity];
+        remap = new int[capacity];
+    }
+
+    void reset()
+    {
+        size = 0;
+    }
+
+    int size()
+    {
+        return Math.min((int) SIZE.getVolatile(this), capacity);
+    }
+
+    boolean isFull()
+    {
+        return (int) SIZE.getVolatile(this) >= capacity;
+    }
+
+    /**
+     * Takes the next free node, or returns NONE if the arena is full.
+     */
+    int newNode(int parentId, int action, int nodeDepth)
+    {
+        int id = (int) SIZE.getAndAdd(this, 1);
+        if (id >= capacity)
+            return NONE;
+        return reuseNode(id, parentId, action, nodeDepth);
+    }
+
+    /**
+     * Clears a node taken earlier that never got linked into the tree, for a new parent and action,
+     * and returns it.
+     */
+    int reuseNode(int id, int parentId, int action, int nodeDepth)
+    {
+        parent[id] = parentId;
+        childIdx[id] = action;
+        depth[id] = nodeDepth;
+        Arrays.fill(children, id * num_actions, (id + 1) * num_actions, NONE);
+        nVisits[id] = 0;
+        nVirtual[id] = 0;
+        totValue[id] = 0.0;
+        bounds[2 * id] = Double.MAX_VALUE;
+        bounds[2 * id + 1] = -Double.MAX_VALUE;
+        heuristic[id] = 0.0;
+        actions[id] = 0;
+        hash[id] = 0;
+        return id;
+    }
+
+    /**
+     * Mask of the actions searched from the node, 0 until first visited. Read and written through
+     * these so a mask another worker sets or widens is seen whole.
+     */
+    int actions(int node)
+    {
+        return (int) INTS.getAcquire(actions, node);
+    }
+
+    void setActions(int node, int mask)
+    {
+        INTS.setRelease(actions, node, mask);
+    }
+
+    int child(int node, int action)
+    {
+        return (int) INTS.getAcquire(children, node * num_actions + action);
+    }
+
+    /**
+     * Links the child under the given action unless another worker already did, and returns
+     * whichever child ended up installed.
+     */
+    int installChild(int node, int action, int child)
+    {
+        int installed = (int) INTS.compareAndExchange(children, node * num_actions + action, NONE, child);
+        return installed == NONE ? child : installed;
+    }
+
+    void addVirtual(int node, int count)
+    {
+        INTS.getAndAdd(nVirtual, node, count);
+    }
+
+    void addResult(int node, double result)
+    {
+        INTS.getAndAdd(nVisits, node, 1);
+
+        double prev = (double) DOUBLES.getVolatile(totValue, node);
+        while (!DOUBLES.compareAndSet(totValue, node, prev, prev + result))
+            prev = (double) DOUBLES.getVolatile(totValue, node);
+
+        double low = (double) DOUBLES.getVolatile(bounds, 2 * node);
+        while (result < low && !DOUBLES.compareAndSet(bounds, 2 * node, low, result))
+            low = (double) DOUBLES.getVolatile(bounds, 2 * node);
+
+        double high = (double) DOUBLES.getVolatile(bounds, 2 * node + 1);
+        while (result > high && !DOUBLES.compareAndSet(bounds, 2 * node + 1, high, result))
+            high = (double) DOUBLES.getVolatile(bounds, 2 * node + 1);
+    }
+
+    /**
+     * Copies the subgraph under node in the other arena into this one, one ply shallower, and
+     * returns the id of its copy. Nodes shared by several parents are copied once; branches that
+     * do not fit are dropped.
+     */
+    int copySubtree(NodeArena from, int node)
+    {
+        Arrays.fill(from.remap, 0, from.size(), NONE);
+        return copySubtree(from, node, NONE, -1);
+    }
+
+    private int copySubtree(NodeArena from, int node, int parentId, int action)
+    {
+        if (from.remap[node] != NONE)
+            return from.remap[node];
+
+        int id = newNode(parentId, action, from.depth[node] - 1);
+        if (id == NONE)
+            return NONE;
+        from.remap[node] = id;
+
+        hash[id] = from.hash[node];
+        nVisits[id] = from.nVisits[node];
+        totValue[id] = from.totValue[node];
+        bounds[2 * id] = from.bounds[2 * node];
+        bounds[2 * id + 1] = from.bounds[2 * node + 1];
+        heuristic[id] = from.heuristic[node];
+        actions[id] = from.actions[node];
+
+        for (int a = 0; a < num_actions; a++) {
+            int c = from.children[node * num_actions + a];
+            if (c != NONE)
+                children[id * num_actions + a] = copySubtree(from, c, id, a);
+        }
+        return id;
+    }
+}
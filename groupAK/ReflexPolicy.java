@@ -0,0 +1,118 @@
+package players.groupAK;
+
+import core.GameState;
+import utils.Types;
+import utils.Vector2d;
+
+import java.util.Arrays;
+
+/**
+ * Move for a turn with no threat in sight, found without search: bomb wood next to us when there
+ * is a way out of the blast, otherwise walk the shortest safe path to the nearest power-up or
+ * tile next to wood, otherwise stop. Works on the bitboard and blast times of the ThreatCheck
+ * that judged the turn quiet.
+ */
+class ReflexPolicy
+{
+    private static final int STOP = indexOf(Types.ACTIONS.ACTION_STOP);
+    private static final int BOMB = indexOf(Types.ACTIONS.ACTION_BOMB);
+
+    // Breadth-first search over tiles: distance from our agent and first action on the way there
+    private int[] queue = new int[0];
+    private int[] distance = new int[0];
+    private int[] firstAction = new int[0];
+
+    private static int indexOf(Types.ACTIONS act)
+    {
+        for (int a = 0; a < RolloutEngine.ACTIONS.length; a++)
+            if (RolloutEngine.ACTIONS[a] == act)
+                return a;
+        return 0;
+    }
+
+    /**
+     * Index into RolloutEngine.ACTIONS of the move to play in gs, which threats has just found quiet.
+     */
+    int action(GameState gs, ThreatCheck threats)
+    {
+        BoardBits bits = threats.bits();
+        DangerMap danger = threats.danger();
+        Vector2d pos = gs.getPosition();
+        int size = bits.size();
+        int reached = search(bits, danger, pos, size);
+
+        if (gs.getAmmo() > 0 && nextToWood(bits, pos.x, pos.y, size)
+                && canEscape(bits, pos, gs.getBlastStrength(), reached, size))
+            return BOMB;
+
+        for (int i = 1; i < reached; i++) {
+            int x = queue[i] % size, y = queue[i] / size;
+            if (bits.has(BoardBits.POWER_UPS, x, y) || (gs.getAmmo() > 0 && nextToWood(bits, x, y, size)))
+                return firstAction[queue[i]];
+        }
+        return STOP;
+    }
+
+    // Fills distance and firstAction for the tiles our agent can walk to without entering flames
+    // or a blast, and returns how many there are; queue holds them nearest first.
+    private int search(BoardBits bits, DangerMap danger, Vector2d pos, int size)
+    {
+        int tiles = size * size;
+        if (queue.length != tiles) {
+            queue = new int[tiles];
+            distance = new int[tiles];
+            firstAction = new int[tiles];
+        }
+        Arrays.fill(distance, -1);
+
+        int start = pos.y * size + pos.x;
+        distance[start] = 0;
+        firstAction[start] = STOP;
+        queue[0] = start;
+        int head = 0, tail = 1;
+        while (head < tail) {
+            int tile = queue[head++];
+            int x = tile % size, y = tile / size;
+            for (int a = 0; a < RolloutEngine.ACTIONS.length; a++) {
+                int nx = x + RolloutEngine.DX[a], ny = y + RolloutEngine.DY[a];
+                if ((nx == x && ny == y) || nx < 0 || nx >= size || ny < 0 || ny >= size)
+                    continue;
+                int next = ny * size + nx;
+                if (distance[next] >= 0 || !walkable(bits, danger, nx, ny))
+                    continue;
+                distance[next] = distance[tile] + 1;
+                firstAction[next] = (tile == start) ? a : firstAction[tile];
+                queue[tail++] = next;
+            }
+        }
+        return tail;
+    }
+
+    private static boolean walkable(BoardBits bits, DangerMap danger, int x, int y)
+    {
+        return !bits.has(BoardBits.RIGID, x, y) && !bits.has(BoardBits.WOOD, x, y)
+                && !bits.has(BoardBits.BOMBS, x, y) && !bits.has(BoardBits.AGENTS, x, y)
+                && !bits.has(BoardBits.FLAMES, x, y) && danger.ticks(x, y) == DangerMap.SAFE;
+    }
+
+    private static boolean nextToWood(BoardBits bits, int x, int y, int size)
+    {
+        return (x > 0 && bits.has(BoardBits.WOOD, x - 1, y)) || (x < size - 1 && bits.has(BoardBits.WOOD, x + 1, y))
+                || (y > 0 && bits.has(BoardBits.WOOD, x, y - 1)) || (y < size - 1 && bits.has(BoardBits.WOOD, x, y + 1));
+    }
+
+    // Whether a tile out of the reach of a bomb dropped at pos can be walked to before it goes off.
+    // Walls are ignored when judging reach, which only errs on the safe side.
+    private boolean canEscape(BoardBits bits, Vector2d pos, int blastStrength, int reached, int size)
+    {
+        for (int i = 1; i < reached; i++) {
+            int x = queue[i] % size, y = queue[i] / size;
+            if (distance[queue[i]] >= Types.BOMB_LIFE)
+                break;
+            boolean inLine = x == pos.x || y == pos.y;
+            if (!inLine || Math.abs(x - pos.x) + Math.abs(y - pos.y) >= blastStrength)
+                return true;
+        }
+        return false;
+    }
+}
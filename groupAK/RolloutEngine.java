@@ -0,0 +1,326 @@
+package players.groupAK;
+
+import core.GameState;
+import players.heuristics.StateHeuristic;
+import utils.Types;
+import utils.Utils;
+import utils.Vector2d;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * Advances simulated states for one search worker: the joint-action step used by the tree policy
+ * and the rollout policies. Buffers are allocated once per worker and the action tables once per
+ * class, so a rollout allocates nothing beyond what the forward model needs.
+ */
+class RolloutEngine
+{
+    // Actions in the order of Types.ACTIONS.all() and the tile offset each one moves the agent by.
+    static final Types.ACTIONS[] ACTIONS;
+    static final int[] DX;
+    static final int[] DY;
+
+    static {
+        ArrayList<Types.ACTIONS> all = Types.ACTIONS.all();
+        ACTIONS = all.toArray(new Types.ACTIONS[0]);
+        DX = new int[ACTIONS.length];
+        DY = new int[ACTIONS.length];
+        for (int i = 0; i < ACTIONS.length; i++) {
+            Vector2d dir = ACTIONS[i].getDirection().toVec();
+            DX[i] = dir.x;
+            DY[i] = dir.y;
+        }
+    }
+
+    private MCTSParamsTD params;
+    private Random m_rnd;
+    private StateHeuristic heuristic;
+    private EvaluationCache evaluations;
+    private ForwardModelMeter meter;
+    private SearchStats stats;
+    private int num_actions;
+
+    private Types.ACTIONS[] jointActions = new Types.ACTIONS[Types.NUM_PLAYERS];
+    private BoardBits bits = new BoardBits();
+    private DangerMap danger;   // null unless params.avoid_blasts
+    private storedActions step; // candidates the rollout policy simulated from the current rollout state
+
+    // Opponent actions of the current determinization, NUM_PLAYERS per tick from planTick on, or null
+    // to sample them at random
+    private int[] plan;
+    private int planTick;
+
+    // State the rollout policy reached while evaluating the action it chose, adopted by the rollout
+    // instead of copying and rolling the chosen action again. Null when the choice was not simulated.
+    private GameState successor;
+
+    RolloutEngine(MCTSParamsTD params, Random rnd, EvaluationCache evaluations, ForwardModelMeter meter, SearchStats stats)
+    {
+        this.params = params;
+        this.m_rnd = rnd;
+        this.evaluations = evaluations;
+        this.meter = meter;
+        this.stats = stats;
+        this.num_actions = ACTIONS.length;
+        this.step = new storedActions(num_actions);
+        if (params.avoid_blasts)
+            danger = new DangerMap();
+    }
+
+    void setHeuristic(StateHeuristic heuristic)
+    {
+        this.heuristic = heuristic;
+    }
+
+    // Heuristic value of the state, through the evaluation cache when there is one.
+    double evaluate(GameState gs)
+    {
+        stats.evaluations++;
+        if (evaluations != null)
+            return evaluations.evaluate(heuristic, gs);
+        return heuristic.evaluateState(gs);
+    }
+
+    /**
+     * Plays the opponents by the given plan, indexed by ticks since planTick, while it lasts, or at
+     * random with a null plan.
+     */
+    void setPlan(int[] plan, int planTick)
+    {
+        this.plan = plan;
+        this.planTick = planTick;
+    }
+
+    void roll(GameState gs, Types.ACTIONS act)
+    {
+        //Simple, all random first, then my position.
+        int playerId = gs.getPlayerId() - Types.TILETYPE.AGENT0.getKey();
+        int planned = (plan != null) ? (gs.getTick() - planTick) * jointActions.length : -1;
+        if (planned < 0 || planned >= (plan != null ? plan.length : 0))
+            planned = -1;
+
+        for(int i = 0; i < jointActions.length; ++i)
+        {
+            if(playerId == i)
+            {
+                jointActions[i] = act;
+            }else {
+                int actionIdx = (planned >= 0) ? plan[planned + i] : m_rnd.nextInt(gs.nActions());
+                jointActions[i] = ACTIONS[actionIdx];
+            }
+        }
+
+        meter.next(gs, jointActions, stats);
+
+    }
+
+    double rollOut(GameState state, int depth)
+    {
+        int thisDepth = depth;
+        if (danger != null)
+            danger.invalidate();    // a new rollout state, not the one the map followed
+
+        while (!finishRollout(state,thisDepth)) {
+
+            if (params.rolloutType == 0) {
+                int action = safeRandomAction(state); // returns action selection from the default
+                roll(state, ACTIONS[action]);
+                thisDepth++;
+
+            }else if (params.rolloutType == 1){
+                Types.ACTIONS action = actOSLA(state); // returns action from the OSLA action selection Method
+                state = advance(state, action);
+                thisDepth++;
+
+            }else if (params.rolloutType == 2){
+                int action = evaluatedRandomAction(state); // returns action from the evaluated random action selection Method
+                state = advance(state, ACTIONS[action]);
+                thisDepth++;
+            }
+        }
+
+        return evaluate(state);
+    }
+
+    // Continues from the successor the policy already simulated, or rolls the action if there is none.
+    private GameState advance(GameState state, Types.ACTIONS action)
+    {
+        GameState next = successor;
+        successor = null;
+        if (next != null)
+            return next;
+
+        roll(state, action);
+        return state;
+    }
+
+    // Actions that keep our agent on the board and out of flames, and with avoid_blasts out of blasts
+    // going off on the next tick when any such move exists.
+    private int safeMoves(GameState state)
+    {
+        // Without the danger map, which needs the whole board, only the tiles around our agent matter
+        Vector2d pos = state.getPosition();
+        if (danger != null)
+            bits.build(state.getBoard());
+        else
+            bits.buildAround(state.getBoard(), pos);
+        int safe = bits.safeMoves(pos);
+        if (danger != null) {
+            danger.update(state, bits);
+            int survivable = danger.survivableMoves(pos, safe, movingActions(state, pos));
+            if (survivable != 0)
+                safe = survivable;
+        }
+        return safe;
+    }
+
+    /**
+     * Mask of the actions worth searching in the state: the safe ones (see safeMoves) among stopping,
+     * bombing and moves that go somewhere, a move into a wall, wood or an agent only repeating STOP.
+     * Moves onto a bomb count when our agent can kick. All actions if none qualifies.
+     */
+    int searchedActions(GameState state)
+    {
+        if (danger != null)
+            danger.invalidate();    // a tree state, not the one the map followed
+        int safe = safeMoves(state);
+
+        int mask = safe & movingActions(state, state.getPosition());
+        return mask != 0 ? mask : (1 << num_actions) - 1;
+    }
+
+    // Stopping, bombing and the moves our agent can make from pos on the bitboard built last, moves
+    // onto a bomb included when it can kick.
+    private int movingActions(GameState state, Vector2d pos)
+    {
+        int moving = bits.legalMoves(pos);
+        if (state.canKick())
+            moving |= bits.nearby(BoardBits.BOMBS, pos);
+        return moving;
+    }
+
+    // Index of the k-th set bit of the candidate mask, i.e. the k-th action still to try.
+    private static int nthCandidate(int mask, int k)
+    {
+        for (int i = 0; i < k; i++)
+            mask &= mask - 1;
+        return Integer.numberOfTrailingZeros(mask);
+    }
+
+    int safeRandomAction(GameState state) // The default action selector of MCTS
+    {
+        int safe = safeMoves(state);
+        int actionsToTry = (1 << num_actions) - 1;
+
+        while(actionsToTry != 0) {
+
+            int action = nthCandidate(actionsToTry, m_rnd.nextInt(Integer.bitCount(actionsToTry)));
+            if ((safe & (1 << action)) != 0)
+                return action;
+            actionsToTry &= ~(1 << action);
+        }
+
+        //Uh oh...
+        return m_rnd.nextInt(num_actions);
+    }
+
+    // Value of playing the action from the state. A candidate is copied, rolled and evaluated at most
+    // once per rollout step, its state kept in the step table to become the successor if chosen.
+    private double candidateValue(GameState state, int action)
+    {
+        if (!step.has(action)) {
+            GameState gsCopy = meter.copy(state, stats); // the gamestate is copied to be used in the forward model
+            roll(gsCopy, ACTIONS[action]); //simulate the action in gamestate using forward model
+            step.store(action, evaluate(gsCopy), gsCopy); // evaluate the state and store its score
+        }
+        return step.value(action);
+    }
+
+    Types.ACTIONS actOSLA(GameState state) //Action selection using One Step Look Ahead
+    {
+// the method below is the implementation of the OSLA for action selection excellent against mcts in 1v1
+// but made the agent too slow against 4 players so decided to not use it for main experimentation and tried to create a balance instead.
+
+        double maxQ = Double.NEGATIVE_INFINITY;
+        int bestAction = 0;
+        step.clear();
+
+        for (int act = 0; act < num_actions; act++) { // for each legal action available
+            double valState = candidateValue(state, act); // simulate the action and return a score
+
+            double Q = Utils.noise(valState, params.epsilon, m_rnd.nextDouble());
+
+            if (Q > maxQ) { // if the score is higher than the max stored value then replace maxQ and becomes the best action
+                maxQ = Q;
+                bestAction = act;
+            }
+
+        }
+
+        successor = step.state(bestAction);
+        return ACTIONS[bestAction]; // return the best action to be rolled out.
+
+    }
+
+    int evaluatedRandomAction(GameState state) // This Method was used for the main experimentation.
+    {
+        int safe = safeMoves(state);
+        int actionsToTry = (1 << num_actions) - 1;
+        double maxQ = Double.NEGATIVE_INFINITY;
+        int chosenAction;
+        successor = null;
+        step.clear(); // scores of the actions simulated so far this step, each one is simulated once
+
+        while(actionsToTry != 0) {
+
+            int act = nthCandidate(actionsToTry, m_rnd.nextInt(Integer.bitCount(actionsToTry))); // picks a random action still to try
+            int act2 = Integer.numberOfTrailingZeros(actionsToTry); // the previous action is the first one still to try
+
+            double valState = candidateValue(state, act); // simulate the random action and return a score for it
+            double prevValState = candidateValue(state, act2); // the same for the previous action, unless already simulated
+
+            double Q = Utils.noise(valState, params.epsilon, m_rnd.nextDouble()); // add noise to break ties
+            double Qprev = Utils.noise(prevValState, params.epsilon, m_rnd.nextDouble());// add noise to break ties
+
+            int tried = act;
+            if (Q > maxQ ) { // compare the score to the highest evaluated action if greater then this will be played
+                maxQ = Q;
+                chosenAction = act;
+            } else if (Qprev > Q ) { // if the score above was not greater than the highest evaluated action
+                // then the previous action can be compared to the new random action. if it scores higher it will be played.
+                maxQ = Qprev;
+                chosenAction = act2;
+                act = act2;
+            } else { // if the random action isnt higher than the highest evaluated action but the previous action
+                // doesnt score higher than the random action then its best to just play the random action
+                chosenAction = act;
+            }
+
+            if ((safe & (1 << act)) != 0) { // checks whether the action is safe
+                successor = step.state(chosenAction);
+                return chosenAction;
+            }
+
+            actionsToTry &= ~(1 << tried);
+        }
+
+        //Uh oh...
+        return m_rnd.nextInt(num_actions);
+    }
+
+    @SuppressWarnings("RedundantIfStatement")
+    private boolean finishRollout(GameState rollerState, int depth)
+    {
+        if (depth >= params.rollout_depth)      //rollout end condition.
+            return true;
+
+        if (rollerState.isTerminal())               //end of game
+            return true;
+
+        if (meter.exhausted())                      //forward model budget spent
+            return true;
+
+        return false;
+    }
+}
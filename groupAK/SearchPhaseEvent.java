@@ -0,0 +1,50 @@
+package players.groupAK;
+
+import jdk.jfr.*;
+
+/**
+ * JFR event for one phase of a sampled search iteration: copying the root state, the tree policy,
+ * the rollout or the backup. Only every params.jfr_sample_interval-th iteration of a worker is
+ * sampled. Disabled by default; enable players.groupAK.SearchPhase in the recording settings.
+ */
+@Name("players.groupAK.SearchPhase")
+@Label("MCTS Search Phase")
+@Category({"Pommerman", "MCTS"})
+@Description("One phase of a sampled MCTS iteration")
+@Enabled(false)
+@StackTrace(false)
+class SearchPhaseEvent extends Event
+{
+    static final String COPY = "copy";
+    static final String TREE_POLICY = "treePolicy";
+    static final String ROLLOUT = "rollOut";
+    static final String BACKUP = "backUp";
+
+    @Label("Phase")
+    String phase;
+
+    @Label("Depth")
+    int depth;
+
+    /**
+     * Starts timing a phase, or returns null when the event is not being recorded.
+     */
+    static SearchPhaseEvent start(String phase)
+    {
+        SearchPhaseEvent event = new SearchPhaseEvent();
+        if (!event.isEnabled())
+            return null;
+        event.phase = phase;
+        event.begin();
+        return event;
+    }
+
+    // Records the phase started with start(), if it is being recorded.
+    static void end(SearchPhaseEvent event, int depth)
+    {
+        if (event != null) {
+            event.depth = depth;
+            event.commit();
+        }
+    }
+}
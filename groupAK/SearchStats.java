@@ -0,0 +1,160 @@
+package players.groupAK;
+
+import java.util.Arrays;
+
+/**
+ * What one turn's search did. Each search worker counts into its own instance, and after the search
+ * the player sums them into the one it hands to its SearchStatsListener. The instances are reused
+ * every turn, so a listener has to copy out what it keeps. Phase times are only measured with
+ * params.search_stats.
+ */
+public class SearchStats
+{
+    int tick;
+    int action;
+    long turnTime;
+
+    int iterations;
+    long fmCalls;           // forward model steps, in the tree and in rollouts
+    long copies;            // game states copied
+    long evaluations;       // heuristic values asked for, cache hits included
+    long cacheHits;         // evaluations the evaluation cache answered, with params.eval_cache_size
+    long cacheMisses;       // evaluations it had to compute
+    int maxDepth;
+    long totalDepth;        // depth of the node each iteration rolled out from, summed
+    int nodes;
+
+    long selectionTime;
+    long expansionTime;
+    long rolloutTime;
+    long backupTime;
+
+    int[] rootVisits = new int[0];
+
+    // Visits and summed results of each root action under each determinization, with params.determinizations
+    int determinizations;
+    int[] determinizationVisits = new int[0];
+    double[] determinizationValues = new double[0];
+
+    void clear()
+    {
+        tick = 0;
+        action = 0;
+        turnTime = 0;
+        iterations = 0;
+        fmCalls = 0;
+        copies = 0;
+        evaluations = 0;
+        cacheHits = 0;
+        cacheMisses = 0;
+        maxDepth = 0;
+        totalDepth = 0;
+        nodes = 0;
+        selectionTime = 0;
+        expansionTime = 0;
+        rolloutTime = 0;
+        backupTime = 0;
+        Arrays.fill(rootVisits, 0);
+        Arrays.fill(determinizationVisits, 0);
+        Arrays.fill(determinizationValues, 0);
+    }
+
+    // Adds the search counts of another worker's stats to these.
+    void add(SearchStats other)
+    {
+        iterations += other.iterations;
+        fmCalls += other.fmCalls;
+        copies += other.copies;
+        evaluations += other.evaluations;
+        cacheHits += other.cacheHits;
+        cacheMisses += other.cacheMisses;
+        maxDepth = Math.max(maxDepth, other.maxDepth);
+        totalDepth += other.totalDepth;
+        selectionTime += other.selectionTime;
+        expansionTime += other.expansionTime;
+        rolloutTime += other.rolloutTime;
+        backupTime += other.backupTime;
+
+        if (other.determinizations > 0) {
+            ensureDeterminizations(other.determinizations, other.determinizationVisits.length / other.determinizations);
+            for (int i = 0; i < determinizationVisits.length; i++) {
+                determinizationVisits[i] += other.determinizationVisits[i];
+                determinizationValues[i] += other.determinizationValues[i];
+            }
+        }
+    }
+
+    void addDeterminizationResult(int determinization, int action, double result, int count, int num_actions)
+    {
+        ensureDeterminizations(count, num_actions);
+        determinizationVisits[determinization * num_actions + action]++;
+        determinizationValues[determinization * num_actions + action] += result;
+    }
+
+    private void ensureDeterminizations(int count, int num_actions)
+    {
+        if (determinizations != count || determinizationVisits.length != count * num_actions) {
+            determinizations = count;
+            determinizationVisits = new int[count * num_actions];
+            determinizationValues = new double[count * num_actions];
+        }
+    }
+
+    void addRootVisits(int action, int visits, int num_actions)
+    {
+        if (rootVisits.length != num_actions)
+            rootVisits = new int[num_actions];
+        rootVisits[action] += visits;
+    }
+
+    public int getTick() { return tick; }
+    public int getAction() { return action; }
+    public long getTurnNanos() { return turnTime; }
+
+    public int getIterations() { return iterations; }
+    public long getFmCalls() { return fmCalls; }
+    public long getCopies() { return copies; }
+    public long getEvaluations() { return evaluations; }
+    public long getEvaluationCacheHits() { return cacheHits; }
+    public long getEvaluationCacheMisses() { return cacheMisses; }
+    public int getMaxDepth() { return maxDepth; }
+    public double getMeanDepth() { return iterations == 0 ? 0 : (double) totalDepth / iterations; }
+    public int getNodes() { return nodes; }
+
+    public long getSelectionNanos() { return selectionTime; }
+    public long getExpansionNanos() { return expansionTime; }
+    public long getRolloutNanos() { return rolloutTime; }
+    public long getBackupNanos() { return backupTime; }
+
+    /**
+     * Visits of each root action, in the order of Types.ACTIONS.all(), summed over the trees.
+     */
+    public int getRootVisits(int action) { return action < rootVisits.length ? rootVisits[action] : 0; }
+
+    /**
+     * Number of determinizations searched, 0 without params.determinizations.
+     */
+    public int getDeterminizations() { return determinizations; }
+
+    /**
+     * Iterations that played the root action under the determinization, and their mean result.
+     */
+    public int getDeterminizationVisits(int determinization, int action) {
+        int i = determinizationIndex(determinization, action);
+        return i < 0 ? 0 : determinizationVisits[i];
+    }
+
+    public double getDeterminizationMeanValue(int determinization, int action) {
+        int i = determinizationIndex(determinization, action);
+        return i < 0 || determinizationVisits[i] == 0 ? 0 : determinizationValues[i] / determinizationVisits[i];
+    }
+
+    // Slot of the pair in the determinization arrays, -1 if it was not searched this turn.
+    private int determinizationIndex(int determinization, int action)
+    {
+        if (determinization < 0 || determinization >= determinizations)
+            return -1;
+        int rootActions = determinizationVisits.length / determinizations;
+        return action < 0 || action >= rootActions ? -1 : determinization * rootActions + action;
+    }
+}
@@ -0,0 +1,12 @@
+package players.groupAK;
+
+/**
+ * Receives the statistics of every turn of an MCTSPlayerTD, on the thread that called act().
+ */
+public interface SearchStatsListener
+{
+    /**
+     * Called at the end of act(). The stats object is reused by the next turn.
+     */
+    void onTurn(SearchStats stats);
+}
@@ -0,0 +1,81 @@
+package players.groupAK;
+
+import core.GameState;
+import players.heuristics.AdvancedHeuristic;
+import players.heuristics.CustomHeuristic;
+import players.heuristics.StateHeuristic;
+
+import java.util.Random;
+
+/**
+ * State owned by one search thread: the random generator, heuristic and rollout buffers used while
+ * descending, rolling out and evaluating, so several threads can search the same tree without sharing them.
+ * Workers live as long as their tree and are pointed at the new root state every turn.
+ */
+class SearchWorker
+{
+    private MCTSParamsTD params;
+
+    final Random rnd;
+    final RolloutEngine rollout;
+    final EvaluationCache evaluations;  // null unless params.eval_cache_size > 0
+    final TimeBudget time;
+    final SearchStats stats = new SearchStats();    // work done since the root state was set
+
+    // Visits added to every node this worker is currently below, 0 when searching alone.
+    double virtualLoss;
+
+    // Nodes visited by the current iteration from the root down, backed up in reverse. Parent links
+    // cannot be followed up because with transpositions a node can have several parents.
+    final int[] path;
+    int pathLength;
+
+    // State of the node the current iteration has reached, null while it is still the root's
+    GameState state;
+
+    // Node this worker took from the arena but lost the race to link in, reused by its next expansion
+    int freeNode = NodeArena.NONE;
+
+    // Determinization the current iteration plays, with params.determinizations, and the action it
+    // played at the root, NONE if it rolled out from the root
+    int determinization;
+    int firstAction;
+
+    // Action the last expansion played to reach the child it returned
+    int expandedAction;
+
+    // States of the children a batched expansion added, by action, with params.batch_expansion
+    final GameState[] batch = new GameState[RolloutEngine.ACTIONS.length];
+
+    // Root actions still in the running during sequential halving
+    final int[] rootActions = new int[RolloutEngine.ACTIONS.length];
+
+    SearchWorker(MCTSParamsTD params, Random rnd, ForwardModelMeter meter)
+    {
+        this.params = params;
+        this.rnd = rnd;
+        this.evaluations = params.eval_cache_size > 0 ? new EvaluationCache(params.eval_cache_size) : null;
+        this.rollout = new RolloutEngine(params, rnd, evaluations, meter, stats);
+        this.path = new int[params.rollout_depth + 1];
+        this.time = new TimeBudget(params);
+    }
+
+    /**
+     * Builds the heuristic for the new root state, invalidates evaluations cached for the old one and
+     * clears the stats.
+     */
+    void setRootState(GameState gs, double virtualLoss)
+    {
+        StateHeuristic sh = null;
+        if (params.heuristic_method == params.CUSTOM_HEURISTIC)
+            sh = new CustomHeuristic(gs);
+        else if (params.heuristic_method == params.ADVANCED_HEURISTIC) // New method: combined heuristics
+            sh = new AdvancedHeuristic(gs, rnd);
+
+        rollout.setHeuristic(sh);
+        if (evaluations != null)
+            evaluations.nextEpoch();
+        stats.clear();
+        this.virtualLoss = virtualLoss;
+    }
+}
@@ -2,408 +2,756 @@ package players.groupAK;
 
 import core.GameState;
 
-import players.heuristics.AdvancedHeuristic;
-import players.heuristics.CustomHeuristic;
-import players.heuristics.StateHeuristic;
-import utils.ElapsedCpuTimer;
 import utils.Types;
 import utils.Utils;
 import utils.Vector2d;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.invoke.VarHandle;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+/**
+ * Search tree for one decision. Nodes are ids into a NodeArena; the root is always node 0.
+ * With transpositions enabled, states reached through different action orders share one node,
+ * which makes the tree a DAG.
+ */
 public class SingleTreeNode
 {
+    private static final int ROOT = 0;
+    private static final int NONE = NodeArena.NONE;
+
+    // Atomic access to the iteration budget, so several workers can search one tree (tree parallelisation).
+    private static final VarHandle ITERATIONS;
+
+    static {
+        try {
+            MethodHandles.Lookup l = MethodHandles.lookup();
+            ITERATIONS = l.findVarHandle(SingleTreeNode.class, "iterations", int.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
     public MCTSParamsTD params;
 
-    private SingleTreeNode parent;
-    private SingleTreeNode[] children;
-    private double totValue;
-    private int nVisits;
+    private NodeArena arena;    // nodes of the tree
+    private NodeArena spare;    // receives the kept subtree when a child is promoted to root
+    private TranspositionTable transpositions;  // null unless params.use_transpositions
     private Random m_rnd;
-    private int m_depth;
-    private double[] bounds = new double[]{Double.MAX_VALUE, -Double.MAX_VALUE};
-    private int childIdx;
-    private int fmCallsCount;
+    private ForwardModelMeter meter = new ForwardModelMeter();   // forward model steps and copies of all workers
+    private int iterations;
     private int num_actions;
+    private int allActions;
     private Types.ACTIONS[] actions;
     private GameState rootState;
-    private StateHeuristic rootStateHeuristic;
+    private SearchWorker[] workers = new SearchWorker[0];
+    private int halvingAction = NONE;   // action sequential halving chose in the last search, if it ran
+    private StateCache states;          // null unless params.state_cache_size > 0 and one worker per tree
+    private int[][] plans;              // opponent actions of each determinization, null unless params.determinizations > 0
 
     SingleTreeNode(MCTSParamsTD p, Random rnd, int num_actions, Types.ACTIONS[] actions) {
-        this(p, null, -1, rnd, num_actions, actions, 0, null);
-    }
-
-    private SingleTreeNode(MCTSParamsTD p, SingleTreeNode parent, int childIdx, Random rnd, int num_actions,
-                           Types.ACTIONS[] actions, int fmCallsCount, StateHeuristic sh) {
         this.params = p;
-        this.fmCallsCount = fmCallsCount;
-        this.parent = parent;
         this.m_rnd = rnd;
         this.num_actions = num_actions;
         this.actions = actions;
-        children = new SingleTreeNode[num_actions];
-        totValue = 0.0;
-        this.childIdx = childIdx;
-        if(parent != null) {
-            m_depth = parent.m_depth + 1;
-            this.rootStateHeuristic = sh;
-        }
-        else
-            m_depth = 0;
+        this.allActions = (1 << num_actions) - 1;
+        this.arena = new NodeArena(p.arena_capacity, num_actions);
+        this.spare = new NodeArena(p.arena_capacity, num_actions);
+        if (p.state_cache_size > 0 && !sharedTree())
+            this.states = new StateCache(p.state_cache_size, p.arena_capacity);
     }
 
+    /**
+     * Clears the tree down to a single root for the given state.
+     */
     void setRootGameState(GameState gs)
     {
+        arena.reset();
+        arena.newNode(NONE, -1, 0);
+        setRoot(gs);
+    }
+
+    private void setRoot(GameState gs)
+    {
+        if (params.use_transpositions) {
+            if (transpositions == null)
+                transpositions = new TranspositionTable(2 * params.arena_capacity);
+            transpositions.clear();
+            for (int id = 0; id < arena.size(); id++) {
+                if (arena.hash[id] != 0)
+                    transpositions.put(arena.hash[id], id);
+            }
+        } else {
+            transpositions = null;
+        }
+
         this.rootState = gs;
-        if (params.heuristic_method == params.CUSTOM_HEURISTIC)
-            this.rootStateHeuristic = new CustomHeuristic(gs);
-        else if (params.heuristic_method == params.ADVANCED_HEURISTIC) // New method: combined heuristics
-            this.rootStateHeuristic = new AdvancedHeuristic(gs, m_rnd);
+        // A kept root's mask was built from a simulated state, rebuild it from the observation
+        arena.setActions(ROOT, 0);
+        this.meter.reset(params.stop_type == params.STOP_FMCALLS ? Math.max(1, params.num_fmcalls) : 0);
+        this.iterations = 0;
+        this.halvingAction = NONE;
+        if (states != null)
+            states.clear();     // node ids and depths change with the root
+        if (params.determinizations > 0)
+            preparePlans();
+        for (SearchWorker w : workers) {
+            w.setRootState(gs, virtualLoss());
+            w.freeNode = NONE;  // not copied with the kept subtree
+        }
     }
 
+    /**
+     * Per-thread state for the i-th worker searching this tree, created on first use.
+     * Worker 0 uses the tree's random generator, the others are seeded from it.
+     */
+    SearchWorker worker(int i)
+    {
+        if (i >= workers.length) {
+            int n = workers.length;
+            workers = Arrays.copyOf(workers, i + 1);
+            for (; n <= i; n++) {
+                workers[n] = new SearchWorker(params, n == 0 ? m_rnd : new Random(m_rnd.nextLong()), meter);
+                workers[n].setRootState(rootState, virtualLoss());
+            }
+        }
+        return workers[i];
+    }
 
-    void mctsSearch(ElapsedCpuTimer elapsedTimer) {
+    // Workers apply virtual loss only when several of them share the tree.
+    private double virtualLoss()
+    {
+        return sharedTree() ? params.virtual_loss : 0;
+    }
 
-        double avgTimeTaken;
-        double acumTimeTaken = 0;
-        long remaining;
-        int numIters = 0;
+    private boolean sharedTree()
+    {
+        return params.parallel_type == params.PARALLEL_TREE && params.search_threads > 1;
+    }
+
+    /**
+     * Samples the pool of determinizations for the turn. The observation gives no way to fill in
+     * hidden information, so a determinization here is only a fixed plan of the actions every
+     * opponent takes on each tick of the search horizon. Every iteration still starts from its own
+     * copy of the root state: the forward model advances states in place and they cannot be reset.
+     */
+    private void preparePlans()
+    {
+        int length = (params.rollout_depth + 1) * Types.NUM_PLAYERS;
+        if (plans == null || plans.length != params.determinizations || plans[0].length != length)
+            plans = new int[params.determinizations][length];
+        for (int[] plan : plans)
+            for (int i = 0; i < plan.length; i++)
+                plan[i] = m_rnd.nextInt(num_actions);
+    }
+
+
+    /**
+     * Makes the child reached by playing the given action the root of the tree for the new
+     * observation, keeping the statistics gathered for it in the previous search.
+     * Returns false if that child was never expanded or the new observation does not follow
+     * from the previous root state, in which case the tree should be reset with setRootGameState.
+     */
+    boolean promoteChild(int action, GameState gs)
+    {
+        if (rootState == null || arena.size() == 0)
+            return false;
+
+        int child = arena.child(ROOT, action);
+        if (child == NONE || !followsFrom(rootState, gs, actions[action]))
+            return false;
+
+        spare.reset();
+        spare.copySubtree(arena, child);
+        NodeArena old = arena;
+        arena = spare;
+        spare = old;
+
+        setRoot(gs);
+        return true;
+    }
 
-        int remainingLimit = 5;
+    // The observation is the next tick and our agent either stayed or moved the way we played.
+    private static boolean followsFrom(GameState prev, GameState gs, Types.ACTIONS act)
+    {
+        if (gs.getTick() != prev.getTick() + 1)
+            return false;
+
+        Vector2d before = prev.getPosition();
+        Vector2d now = gs.getPosition();
+        Vector2d dir = act.getDirection().toVec();
+        boolean stayed = now.x == before.x && now.y == before.y;
+        boolean moved = now.x == before.x + dir.x && now.y == before.y + dir.y;
+        return stayed || moved;
+    }
+
+    void mctsSearch(long deadline) {
+        mctsSearch(deadline, worker(0));
+    }
+
+    /**
+     * Runs search iterations on this tree with the given worker until the budget runs out, with
+     * STOP_TIME by the System.nanoTime() deadline.
+     * Iteration and FM call budgets are shared by all workers searching the tree.
+     */
+    void mctsSearch(long deadline, SearchWorker w) {
+
+        int numIters = 0;
         boolean stop = false;
+        if (rootState.isTerminal())
+            return;     // nothing to search, and no iteration would take a forward model step
+        if (params.stop_type == params.STOP_TIME)
+            w.time.start(deadline);
+
+        if (params.root_policy == params.ROOT_SEQUENTIAL_HALVING && params.stop_type == params.STOP_ITERATIONS
+                && !sharedTree()) {
+            halvingAction = sequentialHalving(w);
+            return;
+        }
 
         while(!stop){
 
-            GameState state = rootState.copy();
-            ElapsedCpuTimer elapsedTimerIteration = new ElapsedCpuTimer();
-            SingleTreeNode selected = treePolicy(state);
-            double delta = selected.rollOut(state);
-            backUp(selected, delta);
+            long stepsBefore = w.stats.fmCalls;
+            iterate(w, NONE);
 
             //Stopping condition
             if(params.stop_type == params.STOP_TIME) {
-                numIters++;
-                acumTimeTaken += (elapsedTimerIteration.elapsedMillis()) ;
-                avgTimeTaken  = acumTimeTaken/numIters;
-                remaining = elapsedTimer.remainingTimeMillis();
-                stop = remaining <= 2 * avgTimeTaken || remaining <= remainingLimit;
+                stop = w.time.iterationDone();
             }else if(params.stop_type == params.STOP_ITERATIONS) {
-                numIters++;
+                numIters = (int) ITERATIONS.getAndAdd(this, 1) + 1;
                 stop = numIters >= params.num_iterations;
             }else if(params.stop_type == params.STOP_FMCALLS)
             {
-                fmCallsCount+=params.rollout_depth;
-                stop = (fmCallsCount + params.rollout_depth) > params.num_fmcalls;
+                // An iteration that ends on terminal or cached states takes no step, charge it one
+                if (w.stats.fmCalls == stepsBefore)
+                    meter.charge();
+                stop = meter.exhausted();
             }
         }
         //System.out.println(" ITERS " + numIters);
     }
 
-    private SingleTreeNode treePolicy(GameState state) {
+    /**
+     * Searches below the given root action, as the player does between turns while the other agents
+     * move, until stopped or cpuQuota nanoseconds of CPU time (wall time where the JVM cannot measure
+     * it) have gone by. Stopping takes effect between iterations.
+     */
+    void ponder(int rootAction, long cpuQuota, AtomicBoolean stop)
+    {
+        if (rootState == null || rootState.isTerminal())
+            return;
 
-        SingleTreeNode cur = this;
+        SearchWorker w = worker(0);
+        meter.reset(0);     // the turn's forward model budget is spent, pondering is limited by the quota
 
-        while (!state.isTerminal() && cur.m_depth < params.rollout_depth)
-        {
-            if (cur.notFullyExpanded()) {
-                return cur.expand(state);
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        boolean cpuTime = threads.isCurrentThreadCpuTimeSupported();
+        long start = cpuTime ? threads.getCurrentThreadCpuTime() : System.nanoTime();
 
-            } else {
-                cur = cur.uct(state);
-            }
+        while (!stop.get() && !arena.isFull()) {
+            iterate(w, rootAction);
+            long used = (cpuTime ? threads.getCurrentThreadCpuTime() : System.nanoTime()) - start;
+            if (used >= cpuQuota)
+                break;
         }
-
-        return cur;
     }
 
+    /**
+     * Sequential halving over the root actions: the iteration budget is split into log2(actions)
+     * rounds, each round gives every action left the same number of iterations with it forced at
+     * the root (UCT below it), then drops the worse half by mean value. Returns the last action left.
+     * Exactly num_iterations iterations run; what does not divide evenly goes one each to the actions
+     * ranked first, so with a budget below rounds * actions some actions get none in a round.
+     */
+    private int sequentialHalving(SearchWorker w)
+    {
+        int mask = searchedActions(ROOT, rootState, w);
+        int[] left = w.rootActions;
+        int n = 0;
+        for (int i = 0; i < num_actions; i++)
+            if ((mask & (1 << i)) != 0)
+                left[n++] = i;
+
+        int rounds = Math.max(1, 32 - Integer.numberOfLeadingZeros(n - 1));
+        int budget = params.num_iterations;
+        int used = 0;
+        for (int r = 0; r < rounds; r++) {
+            // The last round gets whatever rounding left over
+            int roundBudget = (r == rounds - 1) ? budget - used : budget / rounds;
+            for (int k = 0; k < n; k++) {
+                int perAction = roundBudget / n + (k < roundBudget % n ? 1 : 0);
+                for (int j = 0; j < perAction; j++)
+                    iterate(w, left[k]);
+                used += perAction;
+            }
 
-    private SingleTreeNode expand(GameState state) {
-
-        int bestAction = 0;
-        double bestValue = -1;
-
-        for (int i = 0; i < children.length; i++) {
-            double x = m_rnd.nextDouble();
-            if (x > bestValue && children[i] == null) {
-                bestAction = i;
-                bestValue = x;
+            // Best mean value first, keep the better half
+            for (int k = 1; k < n; k++) {
+                int a = left[k];
+                int m = k;
+                for (; m > 0 && meanValue(ROOT, left[m - 1]) < meanValue(ROOT, a); m--)
+                    left[m] = left[m - 1];
+                left[m] = a;
             }
+            n = (n + 1) / 2;
         }
-
-        //Roll the state
-        roll(state, actions[bestAction]);
-
-        SingleTreeNode tn = new SingleTreeNode(params,this,bestAction,this.m_rnd,num_actions,
-                actions, fmCallsCount, rootStateHeuristic);
-        children[bestAction] = tn;
-        return tn;
+        return left[0];
     }
 
-    private void roll(GameState gs, Types.ACTIONS act)
+    private double meanValue(int node, int action)
     {
-        //Simple, all random first, then my position.
-        int nPlayers = 4;
-        Types.ACTIONS[] actionsAll = new Types.ACTIONS[4];
-        int playerId = gs.getPlayerId() - Types.TILETYPE.AGENT0.getKey();
+        int child = arena.child(node, action);
+        if (child == NONE || arena.nVisits[child] == 0)
+            return -Double.MAX_VALUE;
+        return arena.totValue[child] / arena.nVisits[child];
+    }
 
-        for(int i = 0; i < nPlayers; ++i)
-        {
-            if(playerId == i)
-            {
-                actionsAll[i] = act;
-            }else {
-                int actionIdx = m_rnd.nextInt(gs.nActions());
-                actionsAll[i] = Types.ACTIONS.all().get(actionIdx);
-            }
+    /**
+     * One search iteration: select and expand from the root, roll out and back up. With a root
+     * action other than NONE that action is played at the root instead of selecting one.
+     */
+    private void iterate(SearchWorker w, int rootAction)
+    {
+        SearchStats stats = w.stats;
+        boolean timed = params.search_stats;
+
+        // Every jfr_sample_interval-th iteration reports its phases to JFR, when it is recording them
+        SearchPhaseEvent event = null;
+        if (params.jfr_sample_interval > 0 && stats.iterations % params.jfr_sample_interval == 0)
+            event = SearchPhaseEvent.start(SearchPhaseEvent.COPY);
+        boolean sampled = event != null;
+
+        // Iterations take turns playing each determinization of the pool
+        if (plans != null) {
+            w.determinization = (w.determinization + 1) % plans.length;
+            w.rollout.setPlan(plans[w.determinization], rootState.getTick());
         }
 
-        gs.next(actionsAll);
-
+        long start = timed ? System.nanoTime() : 0;
+        long expansionBefore = stats.expansionTime;
+        // With the state cache the root is only copied if no cached state is found on the way down
+        w.state = (states == null) ? meter.copy(rootState, stats) : null;
+        SearchPhaseEvent.end(event, 0);
+
+        event = sampled ? SearchPhaseEvent.start(SearchPhaseEvent.TREE_POLICY) : null;
+        int selected = treePolicy(w, rootAction);
+        GameState state = ownState(w);
+        SearchPhaseEvent.end(event, arena.depth[selected]);
+        long selectionEnd = timed ? System.nanoTime() : 0;
+
+        event = sampled ? SearchPhaseEvent.start(SearchPhaseEvent.ROLLOUT) : null;
+        double delta = w.rollout.rollOut(state, arena.depth[selected]);
+        SearchPhaseEvent.end(event, arena.depth[selected]);
+        long rolloutEnd = timed ? System.nanoTime() : 0;
+
+        event = sampled ? SearchPhaseEvent.start(SearchPhaseEvent.BACKUP) : null;
+        backUp(delta, w);
+        SearchPhaseEvent.end(event, arena.depth[selected]);
+
+        if (plans != null && w.firstAction != NONE)
+            stats.addDeterminizationResult(w.determinization, w.firstAction, delta, plans.length, num_actions);
+        stats.iterations++;
+        stats.totalDepth += arena.depth[selected];
+        stats.maxDepth = Math.max(stats.maxDepth, arena.depth[selected]);
+        if (timed) {
+            stats.selectionTime += (selectionEnd - start) - (stats.expansionTime - expansionBefore);
+            stats.rolloutTime += rolloutEnd - selectionEnd;
+            stats.backupTime += System.nanoTime() - rolloutEnd;
+        }
     }
 
-    private SingleTreeNode uct(GameState state) {
-        SingleTreeNode selected = null;
-        double bestValue = -Double.MAX_VALUE;
-        for (SingleTreeNode child : this.children)
-        {
-            double hvVal = child.totValue;
-            double childValue =  hvVal / (child.nVisits + params.epsilon);
-
-            double hSA = params.heuristic_method;// retrieve domain specific heuristic knowledge using the heuristic of the agent
-            double nSA = (child.nVisits); // this was created to use in progressive bias
-
-            childValue = Utils.normalise(childValue, bounds[0], bounds[1]);
-
-
-            double uctValue = childValue +
-                    params.K * Math.sqrt(Math.log(this.nVisits + 1) / (child.nVisits + params.epsilon)) + (hSA/(1+nSA)); //progressive bias - shows improvement using the formula h(s,a)/1 + N(s,a)
-            uctValue = Utils.noise(uctValue, params.epsilon, this.m_rnd.nextDouble());     //break ties randomly
-
-            // small sampleRandom numbers: break ties in unexpanded nodes
-            if (uctValue > bestValue) {
-                selected = child;
-                bestValue = uctValue;
+    // Descends from the root to the node to roll out from, advancing w.state along, and returns it.
+    private int treePolicy(SearchWorker w, int rootAction) {
+
+        int cur = ROOT;
+        w.pathLength = 0;
+        w.path[w.pathLength++] = cur;
+        w.firstAction = NONE;
+
+        // A forced root action takes the place of selection at the root
+        if (rootAction != NONE && !currentState(w).isTerminal()) {
+            w.firstAction = rootAction;
+            int mask = searchedActions(cur, currentState(w), w);
+            int child = arena.child(cur, rootAction);
+            if (child == NONE) {
+                child = expand(cur, rootAction, mask, ownState(w), w);
+                if (child == NONE)
+                    return cur;     // arena full: roll out from here
+                addVirtualLoss(child, w, 1);
+                w.path[w.pathLength++] = child;
+                return child;
             }
+            descend(child, rootAction, w);
+            cur = child;
+            addVirtualLoss(cur, w, 1);
+            w.path[w.pathLength++] = cur;
         }
-        if (selected == null)
+
+        while (!currentState(w).isTerminal() && arena.depth[cur] < params.rollout_depth && !meter.exhausted())
         {
-            throw new RuntimeException("Warning! returning null: " + bestValue + " : " + this.children.length + " " +
-                    + bounds[0] + " " + bounds[1]);
-        }
+            // One snapshot of the mask for the whole visit, another worker may widen it meanwhile
+            int mask = searchedActions(cur, currentState(w), w);
+
+            if (notFullyExpanded(cur, mask)) {
+                int child = params.batch_expansion ? expandAll(cur, mask, w) : expand(cur, NONE, mask, ownState(w), w);
+                if (child == NONE)
+                    return cur;     // arena full: roll out from here
+                if (cur == ROOT)
+                    w.firstAction = w.expandedAction;
+                addVirtualLoss(child, w, 1);
+                w.path[w.pathLength++] = child;
+                return child;
 
-        //Roll the state:
-        roll(state, actions[selected.childIdx]);
+            } else {
+                // With transpositions a child can have been created under another parent and action,
+                // so the action played is the one selected here, not the child's childIdx
+                int action = uct(cur, mask, w);
+                int child = arena.child(cur, action);
+                if (cur == ROOT)
+                    w.firstAction = action;
+                descend(child, action, w);
+                cur = child;
+                addVirtualLoss(cur, w, 1);
+                w.path[w.pathLength++] = cur;
+            }
+        }
 
-        return selected;
+        return cur;
     }
 
+    // State of the node the tree policy is at, for reading only: the root state until it is copied.
+    private GameState currentState(SearchWorker w)
+    {
+        return w.state != null ? w.state : rootState;
+    }
 
+    // State of the node the tree policy is at, copied from the root state if that has not happened yet.
+    private GameState ownState(SearchWorker w)
+    {
+        if (w.state == null)
+            w.state = meter.copy(rootState, w.stats);
+        return w.state;
+    }
 
+    // Advances the tree policy's state to the child: a copy of its cached state if there is one,
+    // otherwise by playing the action, caching the result for a shallow child.
+    private void descend(int child, int action, SearchWorker w)
+    {
+        GameState cached = (states != null) ? states.get(child) : null;
+        if (cached != null) {
+            w.state = meter.copy(cached, w.stats);
+            return;
+        }
 
+        w.rollout.roll(ownState(w), actions[action]);
+        cacheState(child, w.state, w);
+    }
 
+    // Caches a copy of a shallow node's state, copying only if the cache will keep it.
+    private void cacheState(int node, GameState state, SearchWorker w)
+    {
+        if (states == null || arena.depth[node] > params.state_cache_depth)
+            return;
+        int slot = states.admit(node, arena.nVisits);
+        if (slot >= 0)
+            states.put(slot, node, meter.copy(state, w.stats));
+    }
 
-private double rollOut(GameState state)
-{
-    int thisDepth = this.m_depth;
-
-    while (!finishRollout(state,thisDepth)) {
-
-        if (params.rolloutType == 0) {
-            int action = safeRandomAction(state); // returns action selection from the default
-            roll(state, actions[action]);
-            thisDepth++;
-
-        }else if (params.rolloutType == 1){
-            Types.ACTIONS action = actOSLA(state); // returns action from the OSLA action selection Method
-            roll(state, action);
-            thisDepth++;
 
-        }else if (params.rolloutType == 2){
-            int action = evaluatedRandomAction(state); // returns action from the evaluated random action selection Method
-            roll(state, actions[action]);
-            thisDepth++;
+    // Mask of the actions searched from the node, computed on its first visit: all of them, or with
+    // prune_actions the safe ones that do something. Once every one of those looks lost the node is
+    // widened to all actions.
+    private int searchedActions(int node, GameState state, SearchWorker w)
+    {
+        int mask = arena.actions(node);
+        if (mask == 0) {
+            mask = params.prune_actions ? w.rollout.searchedActions(state) : allActions;
+            arena.setActions(node, mask);
+        } else if (mask != allActions && allLost(node, mask)) {
+            mask = allActions;
+            arena.setActions(node, mask);
         }
+        return mask;
     }
 
-    return rootStateHeuristic.evaluateState(state);
-}
-    private int safeRandomAction(GameState state) // The default action selector of MCTS
+    // Whether every action of the mask has been tried and backed up values below params.rewiden_value.
+    private boolean allLost(int node, int mask)
     {
-        Types.TILETYPE[][] board = state.getBoard();
-        ArrayList<Types.ACTIONS> actionsToTry = Types.ACTIONS.all();
-        int width = board.length;
-        int height = board[0].length;
-
-        while(actionsToTry.size() > 0) {
+        for (int i = 0; i < num_actions; i++) {
+            if ((mask & (1 << i)) == 0)
+                continue;
+            int child = arena.child(node, i);
+            if (child == NONE || arena.nVisits[child] == 0
+                    || arena.totValue[child] / arena.nVisits[child] >= params.rewiden_value)
+                return false;
+        }
+        return true;
+    }
 
-            int nAction = m_rnd.nextInt(actionsToTry.size());
-            Types.ACTIONS act = actionsToTry.get(nAction);
-            Vector2d dir = act.getDirection().toVec();
+    // Adds the child for the action, or with NONE for a random action not expanded yet, and returns
+    // it, or NONE if the arena is full.
+    private int expand(int node, int action, int mask, GameState state, SearchWorker w) {
+        long start = params.search_stats ? System.nanoTime() : 0;
+        int child = addChild(node, action, mask, state, w, 0);
+        if (params.search_stats)
+            w.stats.expansionTime += System.nanoTime() - start;
+        return child;
+    }
 
-            Vector2d pos = state.getPosition();
-            int x = pos.x + dir.x;
-            int y = pos.y + dir.y;
+    /**
+     * Adds every searched action of the node that has no child yet in one go, each rolled from its
+     * own copy of the node's state instead of from the root in an iteration of its own. The children
+     * start with params.expansion_prior visits at their heuristic value, so uct picks the one to
+     * continue with, and tells them apart from the first, and w.state becomes that child's state.
+     * Returns the child, or NONE if the arena is full.
+     */
+    private int expandAll(int node, int mask, SearchWorker w) {
+        long start = params.search_stats ? System.nanoTime() : 0;
+        GameState parentState = ownState(w);
+        int added = NONE;   // action of the last child added
+
+        for (int i = 0; i < num_actions; i++) {
+            if ((mask & (1 << i)) == 0 || arena.child(node, i) != NONE)
+                continue;
+            GameState state = meter.copy(parentState, w.stats);
+            int child = addChild(node, i, mask, state, w, params.expansion_prior);
+            if (child == NONE)
+                break;      // arena full
+            w.batch[i] = state;
+            added = i;
+        }
 
-            if (x >= 0 && x < width && y >= 0 && y < height)
-                if(board[y][x] != Types.TILETYPE.FLAMES)
-                    return nAction;
-            actionsToTry.remove(nAction);
+        // With the arena full uct cannot run over missing children, so go on into the last one added.
+        // The action is the slot chosen here: a child from the transposition table has the childIdx
+        // of another parent.
+        int action = notFullyExpanded(node, mask) ? added : uct(node, mask, w);
+        int child = (action != NONE) ? arena.child(node, action) : NONE;
+        if (child != NONE) {
+            w.expandedAction = action;
+            if (w.batch[action] != null)
+                w.state = w.batch[action];
+            else
+                descend(child, action, w);  // a child added before, or by another worker
         }
+        Arrays.fill(w.batch, null);
 
-        //Uh oh...
-        return m_rnd.nextInt(num_actions);
+        if (params.search_stats)
+            w.stats.expansionTime += System.nanoTime() - start;
+        return child;
     }
 
-    public Types.ACTIONS actOSLA(GameState state) //Action selection using One Step Look Ahead
-    {
-// the method below is the implementation of the OSLA for action selection excellent against mcts in 1v1
-// but made the agent too slow against 4 players so decided to not use it for main experimentation and tried to create a balance instead.
-
-        ArrayList<Types.ACTIONS> actionsList = Types.ACTIONS.all();
-        double maxQ = Double.NEGATIVE_INFINITY;
-        Types.ACTIONS bestAction = null;
-
-        for (Types.ACTIONS act : actionsList) { // for each legal action available in the array list
-            GameState gsCopy = state.copy(); // the gamestate is copied to be used in the forward model
-            roll(gsCopy, act); //simulate the action in gamestate using forward model
-            double valState = rootStateHeuristic.evaluateState(gsCopy); // evaluate the state and return a score
+    // Rolls the state by the action, or with NONE a random action of the mask not expanded yet, and adds
+    // the child it reaches, a new node starting with priorVisits visits at its heuristic value.
+    private int addChild(int node, int action, int mask, GameState state, SearchWorker w, int priorVisits) {
 
-            double Q = Utils.noise(valState, params.epsilon, this.m_rnd.nextDouble());
+        int bestAction = action;
+        if (bestAction == NONE) {
+            bestAction = 0;
+            double bestValue = -1;
 
-            if (Q > maxQ) { // if the score is higher than the max stored value then replace maxQ and becomes the best action
-                maxQ = Q;
-                bestAction = act;
+            for (int i = 0; i < num_actions; i++) {
+                double x = w.rnd.nextDouble();
+                if (x > bestValue && (mask & (1 << i)) != 0 && arena.child(node, i) == NONE) {
+                    bestAction = i;
+                    bestValue = x;
+                }
             }
-
         }
+        w.expandedAction = bestAction;
 
-        return bestAction; // return the best action to be rolled out.
-
-    }
+        if (arena.isFull())
+            return NONE;
 
+        //Roll the state
+        w.rollout.roll(state, actions[bestAction]);
+
+        // A state already in the tree through another order of actions becomes the child as it is
+        long hash = 0;
+        if (transpositions != null) {
+            hash = StateHasher.hash(state);
+            int known = transpositions.get(hash);
+            if (known != NONE)
+                return arena.installChild(node, bestAction, known);
+        }
 
+        int tn = (w.freeNode != NONE) ? arena.reuseNode(w.freeNode, node, bestAction, arena.depth[node] + 1)
+                : arena.newNode(node, bestAction, arena.depth[node] + 1);
+        w.freeNode = NONE;
+        if (tn == NONE)
+            return NONE;
+        arena.heuristic[tn] = w.rollout.evaluate(state);   // h(s,a), evaluated once for progressive bias
+        if (priorVisits > 0) {
+            arena.nVisits[tn] = priorVisits;
+            arena.totValue[tn] = priorVisits * arena.heuristic[tn];
+        }
+        if (transpositions != null)
+            arena.hash[tn] = hash;
+
+        // Another worker may have installed this child first, in which case we continue into theirs
+        // and keep our node for the next expansion
+        int installed = arena.installChild(node, bestAction, tn);
+        if (installed != tn) {
+            w.freeNode = tn;
+            return installed;
+        }
 
-    private int evaluatedRandomAction(GameState state) // This Method was used for the main experimentation.
-{
+        cacheState(tn, state, w);
+        if (transpositions != null)
+            transpositions.put(hash, tn);
+        return tn;
+    }
 
-    //List<storedActions> list = new ArrayList(); // This array list would hold the evaluation of the last 5 - 10 actions previously played
+    // Adds (or with a negative count removes) this worker's virtual loss on the node.
+    private void addVirtualLoss(int node, SearchWorker w, int count)
+    {
+        if (w.virtualLoss > 0)
+            arena.addVirtual(node, count);
+    }
 
-    Types.TILETYPE[][] board = state.getBoard();
-    ArrayList<Types.ACTIONS> actionsToTry = Types.ACTIONS.all();
-    int width = board.length;
-    int height = board[0].length;
-    double maxQ = Double.NEGATIVE_INFINITY;
-    int chosenAction = 0;
-    int prevAction = chosenAction;
-    while(actionsToTry.size() > 0) {
+    int uct(int node, SearchWorker w) {
+        return uct(node, arena.actions(node), w);
+    }
 
-            int nAction = m_rnd.nextInt(actionsToTry.size()); // selects a random integer number
+    // Returns the action, not the child node, uct selects from the node among the actions of the mask.
+    private int uct(int node, int mask, SearchWorker w) {
+        NodeArena t = arena;
+        int selected = NONE;
+        double bestValue = -Double.MAX_VALUE;
+        double low = t.bounds[2 * node];
+        double high = t.bounds[2 * node + 1];
 
-            Types.ACTIONS act = actionsToTry.get(nAction); // picks the correspnding action from the random number chosen above
-            Types.ACTIONS act2 = actionsToTry.get(prevAction); // picks the action chosen from the stored previous action
+        // Workers below a child count as extra visits at the worst value seen, so others spread out
+        double lossValue = low <= high ? low : 0;
 
-            GameState gsCopy = state.copy(); // copies the current game state to be used for random action
-            GameState gsCopy2 = state.copy();// copies the current game state to be used for previous action
+        for (int i = 0; i < num_actions; i++)
+        {
+            if ((mask & (1 << i)) == 0)
+                continue;       // pruned action, not searched from this node
+            int child = t.child(node, i);
+            if (child == NONE)
+                continue;       // not expanded yet
+            double virtual = t.nVirtual[child] * w.virtualLoss;
+            double hvVal = t.totValue[child] + virtual * lossValue;
+            double childValue =  hvVal / (t.nVisits[child] + virtual + params.epsilon);
 
-            roll(gsCopy, act); // simualate the random action with the current game state
-            roll(gsCopy2, act2);// simualate the previous action with the current game state
+            double hSA = t.heuristic[child];// retrieve domain specific heuristic knowledge using the heuristic of the agent
+            double nSA = (t.nVisits[child]); // this was created to use in progressive bias
 
-        double valState = rootStateHeuristic.evaluateState(gsCopy); // evaluate the state and returns a score for that action
-        double Q = Utils.noise(valState, params.epsilon, this.m_rnd.nextDouble()); // add noise to break ties
-        double prevValState = rootStateHeuristic.evaluateState(gsCopy2);// evaluate the state and returns a score for that action
-        double Qprev = Utils.noise(prevValState, params.epsilon, this.m_rnd.nextDouble());// add noise to break ties
+            childValue = Utils.normalise(childValue, low, high);
 
 
-            if (Q > maxQ ) { // compare the score to the highest evaluated action if greater then this will be played
-                maxQ = Q;
-                chosenAction = nAction;
-                //list.add(new storedActions(nAction,Q)); // tried to store action and evaluation into a list with a wrapper
-                // class and retun the highest value action to be played instead of the previous action.
-                //since hashmaps only allow a key and a value. i would need a key, action, evaluation.
-        }
-         else if (Qprev > Q ) { // if the score above was not greater than the highest evaluated action
-             // then the previous action can be compared to the new random action. if it scores higher it will be played.
-             maxQ = Qprev;
-                chosenAction = prevAction;
-               act = act2;
+            double uctValue = childValue +
+                    params.K * Math.sqrt(Math.log(t.nVisits[node] + 1) / (t.nVisits[child] + virtual + params.epsilon)) + (hSA/(1+nSA)); //progressive bias - shows improvement using the formula h(s,a)/1 + N(s,a)
+            uctValue = Utils.noise(uctValue, params.epsilon, w.rnd.nextDouble());     //break ties randomly
 
-            } else { // if the random action isnt higher than the highest evaluated action but the previous action
-             // doesnt score higher than the random action then its best to just play the random action
-                chosenAction = nAction;
+            // small sampleRandom numbers: break ties in unexpanded nodes
+            if (uctValue > bestValue) {
+                selected = i;
+                bestValue = uctValue;
             }
+        }
+        if (selected == NONE)
+        {
+            throw new RuntimeException("Warning! returning null: " + bestValue + " : " + num_actions + " " +
+                    + low + " " + high);
+        }
 
-            Vector2d dir = act.getDirection().toVec();
-            Vector2d pos = state.getPosition();
-            int x = pos.x + dir.x;
-            int y = pos.y + dir.y;
-
-            if (x >= 0 && x < width && y >= 0 && y < height) // checks whether the action is safe
-                if (board[y][x] != Types.TILETYPE.FLAMES)
-                    return chosenAction;
+        return selected;
+    }
 
 
-            actionsToTry.remove(nAction);
 
-    }
 
 
-    //Uh oh...
-    return m_rnd.nextInt(num_actions);
-}
 
-    @SuppressWarnings("RedundantIfStatement")
-    private boolean finishRollout(GameState rollerState, int depth)
+    // Child of the node for the action, NONE if it was not expanded.
+    int child(int node, int action)
     {
-        if (depth >= params.rollout_depth)      //rollout end condition.
-            return true;
-
-        if (rollerState.isTerminal())               //end of game
-            return true;
-
-        return false;
+        return arena.child(node, action);
     }
 
-    private void backUp(SingleTreeNode node, double result)
+    void backUp(double result, SearchWorker w)
     {
-        SingleTreeNode n = node;
-        while(n != null)
+        for (int i = w.pathLength - 1; i >= 0; i--)
         {
-            n.nVisits++;
-            result = result * Math.pow(params.gamma,n.m_depth); //discount factor  applied to the result acquired during
+            int n = w.path[i];
+            if (n != ROOT)
+                addVirtualLoss(n, w, -1);   // replace this worker's virtual loss by the real result
+            result = result * Math.pow(params.gamma,arena.depth[n]); //discount factor  applied to the result acquired during
             // simulation - the idea was to see how the agent will play when choosing actions
             // from states closer to the root node.
-            n.totValue += result;
+            arena.addResult(n, result);
+        }
+    }
 
-            if (result < n.bounds[0]) {
-                n.bounds[0] = result;
-            }
-            if (result > n.bounds[1]) {
-                n.bounds[1] = result;
+
+    /**
+     * Standard deviation of the mean values of the root's visited children. A small spread means
+     * the search has not yet told the actions apart.
+     */
+    double rootValueSpread()
+    {
+        int n = 0;
+        double sum = 0, sumSq = 0;
+        for (int i = 0; i < num_actions; i++) {
+            int child = arena.child(ROOT, i);
+            if (child != NONE && arena.nVisits[child] > 0) {
+                double value = arena.totValue[child] / arena.nVisits[child];
+                sum += value;
+                sumSq += value * value;
+                n++;
             }
-            n = n.parent;
         }
+        if (n < 2)
+            return 0;
+        double mean = sum / n;
+        return Math.sqrt(Math.max(0, sumSq / n - mean * mean));
     }
 
+    /**
+     * Adds what this tree's workers did this turn, its nodes and its root visits to the stats.
+     */
+    void addStats(SearchStats stats)
+    {
+        for (SearchWorker w : workers) {
+            stats.add(w.stats);
+            if (w.evaluations != null) {
+                stats.cacheHits += w.evaluations.hits();
+                stats.cacheMisses += w.evaluations.misses();
+            }
+        }
+        stats.nodes += arena.size();
+        for (int i = 0; i < num_actions; i++) {
+            int child = arena.child(ROOT, i);
+            stats.addRootVisits(i, child == NONE ? 0 : arena.nVisits[child], num_actions);
+        }
+    }
 
     int mostVisitedAction() {
+        if (halvingAction != NONE)
+            return halvingAction;
+
         int selected = -1;
         double bestValue = -Double.MAX_VALUE;
         boolean allEqual = true;
         double first = -1;
 
-        for (int i=0; i<children.length; i++) {
+        for (int i=0; i<num_actions; i++) {
 
-            if(children[i] != null)
+            int child = arena.child(ROOT, i);
+            if(child != NONE)
             {
                 if(first == -1)
-                    first = children[i].nVisits;
-                else if(first != children[i].nVisits)
+                    first = arena.nVisits[child];
+                else if(first != arena.nVisits[child])
                 {
                     allEqual = false;
                 }
 
-                double childValue = children[i].nVisits;
+                double childValue = arena.nVisits[child];
                 childValue = Utils.noise(childValue, params.epsilon, this.m_rnd.nextDouble());     //break ties randomly
                 if (childValue > bestValue) {
                     bestValue = childValue;
@@ -424,15 +772,79 @@ private double rollOut(GameState state)
         return selected;
     }
 
+    /**
+     * Chooses the action to play from several independently searched trees, either by summing
+     * their root child visits (ties broken on the summed value) or by majority vote over each
+     * tree's most visited action (ties broken on the summed visits).
+     */
+    static int mergedAction(SingleTreeNode[] trees)
+    {
+        SingleTreeNode first = trees[0];
+        int num_actions = first.num_actions;
+        double[] visits = new double[num_actions];
+        double[] values = new double[num_actions];
+        double[] votes = new double[num_actions];
+        double totVisits = 0;
+
+        for (SingleTreeNode tree : trees) {
+            for (int i = 0; i < num_actions; i++) {
+                int child = tree.arena.child(ROOT, i);
+                if (child != NONE) {
+                    visits[i] += tree.arena.nVisits[child];
+                    values[i] += tree.arena.totValue[child];
+                    totVisits += tree.arena.nVisits[child];
+                }
+            }
+            if (first.params.merge_type == first.params.MERGE_MAJORITY_VOTE)
+                votes[tree.mostVisitedAction()]++;
+        }
+
+        double[] scores = first.params.merge_type == first.params.MERGE_MAJORITY_VOTE ? votes : visits;
+        if (scores == votes) {
+            for (int i = 0; i < num_actions; i++)
+                votes[i] += visits[i] / (totVisits + 1);
+        }
+
+        int selected = 0;
+        double bestValue = -Double.MAX_VALUE;
+        boolean allEqual = true;
+        for (int i = 0; i < num_actions; i++) {
+            if (scores[i] != scores[0])
+                allEqual = false;
+
+            double score = Utils.noise(scores[i], first.params.epsilon, first.m_rnd.nextDouble());     //break ties randomly
+            if (score > bestValue) {
+                bestValue = score;
+                selected = i;
+            }
+        }
+
+        if (allEqual) {
+            //If all are equal, we opt to choose for the one with the best summed Q.
+            bestValue = -Double.MAX_VALUE;
+            for (int i = 0; i < num_actions; i++) {
+                double childValue = values[i] / (visits[i] + first.params.epsilon);
+                childValue = Utils.noise(childValue, first.params.epsilon, first.m_rnd.nextDouble());
+                if (childValue > bestValue) {
+                    bestValue = childValue;
+                    selected = i;
+                }
+            }
+        }
+
+        return selected;
+    }
+
     private int bestAction()
     {
         int selected = -1;
         double bestValue = -Double.MAX_VALUE;
 
-        for (int i=0; i<children.length; i++) {
+        for (int i=0; i<num_actions; i++) {
 
-            if(children[i] != null) {
-                double childValue = children[i].totValue / (children[i].nVisits + params.epsilon);
+            int child = arena.child(ROOT, i);
+            if(child != NONE) {
+                double childValue = arena.totValue[child] / (arena.nVisits[child] + params.epsilon);
                 childValue = Utils.noise(childValue, params.epsilon, this.m_rnd.nextDouble());     //break ties randomly
                 if (childValue > bestValue) {
                     bestValue = childValue;
@@ -451,9 +863,9 @@ private double rollOut(GameState state)
     }
 
 
-    private boolean notFullyExpanded() {
-        for (SingleTreeNode tn : children) {
-            if (tn == null) {
+    private boolean notFullyExpanded(int node, int mask) {
+        for (int i = 0; i < num_actions; i++) {
+            if ((mask & (1 << i)) != 0 && arena.child(node, i) == NONE) {
                 return true;
             }
         }
@@ -0,0 +1,79 @@
+package players.groupAK;
+
+import core.GameState;
+
+import java.util.Arrays;
+
+/**
+ * Game states of shallow tree nodes, so the tree policy can resume from the deepest cached node on
+ * its path instead of replaying every action from the root. Holds at most a fixed number of states;
+ * once full, the state of the least visited node makes room for the state of a more visited one.
+ */
+class StateCache
+{
+    private final GameState[] states;
+    private final int[] nodeOf;     // node whose state each slot holds
+    private final int[] slotOf;     // slot holding each node's state, -1 if none
+    private int used;
+
+    StateCache(int size, int nodes)
+    {
+        states = new GameState[size];
+        nodeOf = new int[size];
+        slotOf = new int[nodes];
+        Arrays.fill(slotOf, -1);
+    }
+
+    void clear()
+    {
+        for (int i = 0; i < used; i++) {
+            slotOf[nodeOf[i]] = -1;
+            states[i] = null;
+        }
+        used = 0;
+    }
+
+    /**
+     * The cached state of the node, or null. Callers copy it before advancing it.
+     */
+    GameState get(int node)
+    {
+        int slot = slotOf[node];
+        return slot < 0 ? null : states[slot];
+    }
+
+    /**
+     * The slot the node's state would be cached in, or -1 if the cache is full of nodes visited at
+     * least as often. Checked before copying a state for put, so no copy is made only to be dropped.
+     */
+    int admit(int node, int[] visits)
+    {
+        int slot = slotOf[node];
+        if (slot >= 0)
+            return slot;
+        if (used < states.length)
+            return used;
+
+        slot = 0;
+        for (int i = 1; i < used; i++)
+            if (visits[nodeOf[i]] < visits[nodeOf[slot]])
+                slot = i;
+        return visits[nodeOf[slot]] < visits[node] ? slot : -1;
+    }
+
+    /**
+     * Caches the node's state in the slot admit returned for it, evicting the node held there.
+     */
+    void put(int slot, int node, GameState gs)
+    {
+        if (slotOf[node] != slot) {
+            if (slot == used)
+                used++;
+            else
+                slotOf[nodeOf[slot]] = -1;
+            nodeOf[slot] = node;
+            slotOf[node] = slot;
+        }
+        states[slot] = gs;
+    }
+}
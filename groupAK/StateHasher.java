@@ -0,0 +1,64 @@
+package players.groupAK;
+
+import core.GameState;
+import utils.Types;
+
+import java.util.Random;
+
+/**
+ * Zobrist hashing of game states: every (tile, tile type) pair and every bomb tile has a random key,
+ * and the hash of a state is the XOR of the keys of what it contains, bombs with their fuse and blast
+ * strength, mixed with the tick and our agent's ammo, blast strength and kick ability. How long
+ * flames have left to burn and the other agents' ammo, blast strength and kick ability are not
+ * hashed. Never returns 0, which callers use as "no hash".
+ */
+final class StateHasher
+{
+    private static final int NUM_TILE_TYPES = Types.TILETYPE.values().length;
+    private static final long[] TILE_KEYS;
+    private static final long[] BOMB_KEYS;
+
+    static {
+        Random rnd = new Random(0x5EED);    // fixed, so hashes are the same in every run
+        int cells = Types.BOARD_SIZE * Types.BOARD_SIZE;
+        TILE_KEYS = new long[cells * NUM_TILE_TYPES];
+        BOMB_KEYS = new long[cells];
+        for (int i = 0; i < TILE_KEYS.length; i++)
+            TILE_KEYS[i] = rnd.nextLong();
+        for (int i = 0; i < BOMB_KEYS.length; i++)
+            BOMB_KEYS[i] = rnd.nextLong();
+    }
+
+    private StateHasher() {}
+
+    static long hash(GameState gs)
+    {
+        Types.TILETYPE[][] board = gs.getBoard();
+        int[][] bombLife = gs.getBombLife();
+        int[][] bombStrength = gs.getBombBlastStrength();
+        int size = board.length;
+        long h = 0;
+
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                int cell = y * size + x;
+                h ^= TILE_KEYS[cell * NUM_TILE_TYPES + board[y][x].ordinal()];
+                if (bombLife[y][x] > 0)
+                    h ^= mix(BOMB_KEYS[cell] ^ ((long) bombLife[y][x] << 8 | bombStrength[y][x]));  // same bomb, different fuse or blast
+            }
+        }
+
+        long agent = ((long) gs.getTick() << 32) | ((long) gs.getAmmo() << 16) | ((long) gs.getBlastStrength() << 1)
+                | (gs.canKick() ? 1 : 0);
+        h ^= mix(agent);
+        return h == 0 ? 1 : h;
+    }
+
+    // SplitMix64 finaliser, spreads small integers over all 64 bits.
+    static long mix(long z)
+    {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
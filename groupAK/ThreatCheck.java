@@ -0,0 +1,74 @@
+package players.groupAK;
+
+import core.GameState;
+import utils.Types;
+import utils.Vector2d;
+
+import java.util.List;
+
+/**
+ * Cheap test of whether our agent is under threat: a bomb blast, including chain reactions, will
+ * reach its tile or a tile next to it, flames are next to it, or an enemy is within
+ * params.threat_distance tiles.
+ */
+class ThreatCheck
+{
+    private MCTSParamsTD params;
+    private BoardBits bits = new BoardBits();
+    private DangerMap danger = new DangerMap();
+
+    ThreatCheck(MCTSParamsTD params)
+    {
+        this.params = params;
+    }
+
+    boolean isThreatened(GameState gs)
+    {
+        bits.build(gs.getBoard());
+        danger.invalidate();
+        danger.update(gs, bits);
+
+        Vector2d pos = gs.getPosition();
+        int size = bits.size();
+        for (int a = 0; a < RolloutEngine.ACTIONS.length; a++) {
+            int x = pos.x + RolloutEngine.DX[a];
+            int y = pos.y + RolloutEngine.DY[a];
+            if (x < 0 || x >= size || y < 0 || y >= size)
+                continue;
+            if (danger.ticks(x, y) != DangerMap.SAFE || bits.has(BoardBits.FLAMES, x, y))
+                return true;
+        }
+
+        return enemyWithin(gs, pos, params.threat_distance);
+    }
+
+    // Bitboard and blast times of the state last checked.
+    BoardBits bits()
+    {
+        return bits;
+    }
+
+    DangerMap danger()
+    {
+        return danger;
+    }
+
+    // Whether a living enemy stands within the given Manhattan distance of pos.
+    private boolean enemyWithin(GameState gs, Vector2d pos, int distance)
+    {
+        if (bits.count(BoardBits.AGENTS) <= 1)
+            return false;
+
+        Types.TILETYPE[][] board = gs.getBoard();
+        List<Types.TILETYPE> enemies = gs.getAliveEnemyIDs();
+        int size = bits.size();
+        for (int y = Math.max(0, pos.y - distance); y <= Math.min(size - 1, pos.y + distance); y++) {
+            int reach = distance - Math.abs(y - pos.y);
+            for (int x = Math.max(0, pos.x - reach); x <= Math.min(size - 1, pos.x + reach); x++) {
+                if (bits.has(BoardBits.AGENTS, x, y) && enemies.contains(board[y][x]))
+                    return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,42 @@
+package players.groupAK;
+
+/**
+ * Search time carried over between turns. Quiet turns search for a share of num_time and bank the
+ * rest; critical turns may search for num_time plus whatever is in the bank, never longer than
+ * params.turn_time_ceiling. Times are in nanoseconds.
+ */
+class TimeBank
+{
+    private MCTSParamsTD params;
+    private long balance;
+
+    TimeBank(MCTSParamsTD params)
+    {
+        this.params = params;
+    }
+
+    void reset()
+    {
+        balance = 0;
+    }
+
+    long quietTime()
+    {
+        return (long) (params.num_time * params.quiet_time_share * 1000000L);
+    }
+
+    long criticalTime()
+    {
+        long time = params.num_time * 1000000L + balance;
+        return Math.min(time, params.turn_time_ceiling * 1000000L);
+    }
+
+    /**
+     * Banks what the turn left of num_time, or draws what it took over it.
+     */
+    void settle(long usedTime)
+    {
+        balance += params.num_time * 1000000L - usedTime;
+        balance = Math.max(0, Math.min(balance, params.time_bank_limit * 1000000L));
+    }
+}
@@ -0,0 +1,92 @@
+package players.groupAK;
+
+/**
+ * Decides when a time-limited search has to stop to finish before its deadline. The stop test uses a
+ * high quantile of the cost of an iteration rather than the mean, so a slow rollout or a collector
+ * pause near the end does not carry the search past the deadline. While there is plenty of time left
+ * the deadline is only checked every few iterations; the first iteration after each check is timed on
+ * its own, so the estimate is of single iterations, slow ones included, not of means over several.
+ * One per search worker, reused every turn so the cost estimate carries over.
+ */
+class TimeBudget
+{
+    private static final double RATE = 0.1;    // weight of a new sample in the running mean
+
+    private final double quantile;
+    private final long marginNanos;
+    private final int maxCheckInterval;
+
+    private double cost;        // estimated quantile of the nanoseconds an iteration takes, 0 until measured
+    private double meanCost;    // running mean of the same, scales the steps of the quantile estimate
+
+    private long deadline;
+    private long lastCheck;
+    private int sinceCheck;
+    private int checkInterval;
+
+    TimeBudget(MCTSParamsTD params)
+    {
+        this.quantile = params.time_quantile;
+        this.marginNanos = params.time_margin * 1000000L;
+        this.maxCheckInterval = Math.max(1, params.time_check_interval);
+    }
+
+    /**
+     * Starts a search that has to finish by the given System.nanoTime() deadline.
+     */
+    void start(long deadlineNanos)
+    {
+        deadline = deadlineNanos;
+        lastCheck = System.nanoTime();
+        sinceCheck = 0;
+        checkInterval = 1;
+    }
+
+    /**
+     * Records a finished iteration and returns true if there is no time for the iterations that
+     * would run before the next check.
+     */
+    boolean iterationDone()
+    {
+        long now;
+        if (++sinceCheck == 1) {
+            now = System.nanoTime();
+            addSample(now - lastCheck);
+            if (checkInterval > 1)
+                return false;
+        } else if (sinceCheck < checkInterval) {
+            return false;
+        } else {
+            now = System.nanoTime();
+        }
+
+        lastCheck = now;
+        sinceCheck = 0;
+
+        long remaining = deadline - marginNanos - now;
+        if (remaining < cost)
+            return true;
+
+        // Run as many iterations before looking again as fit in half the time left at the quantile cost
+        checkInterval = (int) Math.max(1, Math.min(maxCheckInterval, remaining / (2 * Math.max(cost, 1))));
+        return false;
+    }
+
+    // Stochastic approximation of the quantile: step up by q or down by 1 - q, so it settles where a
+    // fraction q of the samples falls below it.
+    private void addSample(double sample)
+    {
+        if (cost == 0) {
+            cost = sample;
+            meanCost = sample;
+            return;
+        }
+
+        meanCost += RATE * (sample - meanCost);
+        double step = RATE * meanCost;
+        if (sample > cost)
+            cost += step * quantile;
+        else
+            cost = Math.max(0, cost - step * (1 - quantile));
+    }
+}
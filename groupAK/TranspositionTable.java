@@ -0,0 +1,76 @@
+package players.groupAK;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+
+/**
+ * Bounded open-addressed map from state hash to arena node, used to find a node already created
+ * for a state reached through a different order of actions. Entries are claimed with a CAS, so
+ * workers sharing a tree can insert concurrently; when a probe sequence is full the state is simply
+ * not recorded.
+ */
+class TranspositionTable
+{
+    private static final int MAX_PROBES = 16;
+    private static final long EMPTY = 0;
+
+    private static final VarHandle LONGS = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final VarHandle INTS = MethodHandles.arrayElementVarHandle(int[].class);
+
+    private final long[] keys;
+    private final int[] nodes;
+    private final int mask;
+
+    TranspositionTable(int minCapacity)
+    {
+        int capacity = Integer.highestOneBit(Math.max(2, minCapacity) - 1) << 1;
+        keys = new long[capacity];
+        nodes = new int[capacity];
+        mask = capacity - 1;
+        clear();
+    }
+
+    void clear()
+    {
+        Arrays.fill(keys, EMPTY);
+        Arrays.fill(nodes, NodeArena.NONE);
+    }
+
+    /**
+     * Node recorded for the hash, or NodeArena.NONE.
+     */
+    int get(long hash)
+    {
+        int i = index(hash);
+        for (int p = 0; p < MAX_PROBES; p++) {
+            long key = (long) LONGS.getAcquire(keys, i);
+            if (key == hash)
+                return (int) INTS.getAcquire(nodes, i);   // NONE while the inserting worker is still publishing
+            if (key == EMPTY)
+                return NodeArena.NONE;
+            i = (i + 1) & mask;
+        }
+        return NodeArena.NONE;
+    }
+
+    void put(long hash, int node)
+    {
+        int i = index(hash);
+        for (int p = 0; p < MAX_PROBES; p++) {
+            long key = (long) LONGS.compareAndExchange(keys, i, EMPTY, hash);
+            if (key == EMPTY) {
+                INTS.setRelease(nodes, i, node);
+                return;
+            }
+            if (key == hash)
+                return;
+            i = (i + 1) & mask;
+        }
+    }
+
+    private int index(long hash)
+    {
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+}